@@ -0,0 +1,72 @@
+package com.bora.d100.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Executors for background and bulk work, kept separate from Tomcat's request threads.
+ * With spring.threads.virtual.enabled requests, async responses (sheet exports) and the
+ * I/O bound re-costing workers run on virtual threads; CPU bound validation stays on a
+ * platform pool sized to the cores, where virtual threads would not add throughput.
+ */
+@Configuration
+public class ExecutorConfig
+{
+    /**
+     * CPU bound XP validation of character batches. Defaults to one thread per core.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService xpValidationExecutor(@Value("${app.xp.validation-threads:0}") int threads)
+    {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(size, namedDaemonThreads("xp-validation"));
+    }
+
+    /**
+     * Workers of the admin re-costing job. Defaults to half of the cores so request threads
+     * always have CPU left while hundreds of thousands of sheets are re-costed. With virtual
+     * threads the number of workers stays bounded, only the threads are cheaper while they
+     * wait for the database.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService xpRecostExecutor(@Value("${app.xp.recost.threads:0}") int threads,
+                                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads)
+    {
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadFactory factory = virtualThreads ? Thread.ofVirtual().name("xp-recost-", 1).factory() : namedDaemonThreads("xp-recost");
+        return Executors.newFixedThreadPool(size, factory);
+    }
+
+    /**
+     * BCrypt of logins and registrations. Defaults to half of the cores, so a login storm never
+     * takes the CPU of the character endpoints; at most queueSize hashes wait, further ones are
+     * rejected (PasswordHasher answers them with 429).
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService passwordHashExecutor(@Value("${app.auth.hash-threads:0}") int threads,
+                                                @Value("${app.auth.hash-queue:32}") int queueSize)
+    {
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), namedDaemonThreads("password-hash"), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    static ThreadFactory namedDaemonThreads(String prefix)
+    {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
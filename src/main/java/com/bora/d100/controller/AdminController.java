@@ -0,0 +1,59 @@
+package com.bora.d100.controller;
+
+import java.util.logging.Logger;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bora.d100.dto.RecostStatusDTO;
+import com.bora.d100.security.AdminAccess;
+import com.bora.d100.service.RecostService;
+
+/**
+ * Maintenance endpoints for administrators. Every call needs the admin token (X-Admin-Token),
+ * otherwise 403.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private static final Logger logger = Logger.getLogger(AdminController.class.getName());
+
+    private final RecostService recostService;
+    private final AdminAccess adminAccess;
+
+    public AdminController(RecostService recostService, AdminAccess adminAccess) {
+        this.recostService = recostService;
+        this.adminAccess = adminAccess;
+    }
+
+    /**
+     * POST /api/admin/recost
+     * Re-costs every stored character with the current rules in the background.
+     * Returns 202 with the job status, or 409 if a job is already running.
+     */
+    @PostMapping("/recost")
+    public ResponseEntity<RecostStatusDTO> startRecost(
+            @RequestHeader(value = AdminAccess.HEADER, required = false) String adminToken) {
+        adminAccess.check(adminToken);
+        logger.info("POST /api/admin/recost - starting re-costing job");
+        HttpStatus status = recostService.start() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(recostService.getStatus());
+    }
+
+    /**
+     * GET /api/admin/recost
+     * Progress, throughput and characters with a negative budget of the last job.
+     */
+    @GetMapping("/recost")
+    public ResponseEntity<RecostStatusDTO> getRecostStatus(
+            @RequestHeader(value = AdminAccess.HEADER, required = false) String adminToken) {
+        adminAccess.check(adminToken);
+        return ResponseEntity.ok(recostService.getStatus());
+    }
+}
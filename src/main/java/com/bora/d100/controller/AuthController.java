@@ -3,14 +3,19 @@ package com.bora.d100.controller;
 import com.bora.d100.dto.LoginRequestDTO;
 import com.bora.d100.dto.RegisterRequestDTO;
 import com.bora.d100.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
+
 
 @RestController
 @RequestMapping("/auth")
@@ -24,17 +29,32 @@ public class AuthController {
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequestDTO dto)
+    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequestDTO dto, HttpServletRequest request)
     {
-        authService.register(dto);
+        authService.register(dto, request.getRemoteAddr());
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body("User registered successfully");
     }
 
+    /**
+     * GET /auth/email-available?email=
+     * For the signup form, checked while typing. Registration still decides on its own.
+     */
+    @GetMapping("/email-available")
+    public ResponseEntity<Map<String, Object>> isEmailAvailable(@RequestParam String email)
+    {
+        if (email.isBlank())
+        {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(Map.of("email", email, "available", authService.isEmailAvailable(email)));
+    }
+
     @PostMapping("/login")
     public ResponseEntity<?> login(
-            @Valid @RequestBody LoginRequestDTO dto ) {
-        return ResponseEntity.ok(authService.login(dto));
+            @Valid @RequestBody LoginRequestDTO dto, HttpServletRequest request ) {
+        // Client address; behind the hosting proxy it comes from X-Forwarded-For (server.forward-headers-strategy)
+        return ResponseEntity.ok(authService.login(dto, request.getRemoteAddr()));
     }
 }
\ No newline at end of file
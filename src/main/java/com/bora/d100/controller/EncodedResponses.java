@@ -0,0 +1,81 @@
+package com.bora.d100.controller;
+
+import java.util.Locale;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import com.bora.d100.service.EncodedPayload;
+
+/**
+ * Sends pre-encoded payloads: the gzip copy to clients that accept it, a strong ETag per
+ * representation and 304 on a matching If-None-Match. Clients revalidate on every use.
+ */
+final class EncodedResponses {
+
+    private EncodedResponses() {
+    }
+
+    static ResponseEntity<byte[]> send(WebRequest request, EncodedPayload payload, MediaType contentType, HttpHeaders headers) {
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String eTag = gzip ? payload.getGzipETag() : payload.getETag();
+
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .headers(headers)
+                    .eTag(eTag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .headers(headers)
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(contentType);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.getGzip());
+        }
+        return response.body(payload.getIdentity());
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip: listed as gzip (or x-gzip), or covered by "*",
+     * with a q-value above 0. "gzip;q=0" explicitly refuses it, even next to "*".
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.length() > 2 && parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = q;
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+        }
+        double accepted = gzip != null ? gzip : any != null ? any : 0;
+        return accepted > 0;
+    }
+}
@@ -1,7 +1,13 @@
 package com.bora.d100.controller;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -13,16 +19,35 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.bora.d100.dto.RulesSpec;
+import com.bora.d100.dto.PlayerSummaryPageDTO;
+import com.bora.d100.dto.XPOptimizeRequestDTO;
+import com.bora.d100.dto.XPOptimizeResponseDTO;
+import com.bora.d100.dto.XPPreviewDTO;
+import com.bora.d100.exception.PreconditionFailedException;
+import com.bora.d100.model.AvatarBlob;
 import com.bora.d100.model.Player;
+import com.bora.d100.model.PlayerNarrative;
 import com.bora.d100.model.User;
+import com.bora.d100.security.AuthenticatedUser;
+import com.bora.d100.service.AvatarService;
+import com.bora.d100.service.BatchValidationService;
+import com.bora.d100.service.CostServiceByUsage;
 import com.bora.d100.service.PlayerService;
+import com.bora.d100.service.RenderedSheet;
 import com.bora.d100.service.RulesService;
 import com.bora.d100.service.SheetService;
+import com.bora.d100.service.UserCache;
+import com.bora.d100.service.XPOptimizerService;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 
@@ -35,60 +60,209 @@ public class PlayerController
     private final PlayerService playerService;
     private final SheetService sheetService;
     private final RulesService rulesService;
+    private final CostServiceByUsage costServiceByUsage;
+    private final BatchValidationService batchValidationService;
+    private final XPOptimizerService xpOptimizerService;
+    private final AvatarService avatarService;
+    private final UserCache userCache;
 
-    public PlayerController(PlayerService playerService, SheetService sheetService, RulesService rulesService)
+    public PlayerController(PlayerService playerService, SheetService sheetService, RulesService rulesService,
+                            CostServiceByUsage costServiceByUsage, BatchValidationService batchValidationService,
+                            XPOptimizerService xpOptimizerService, AvatarService avatarService, UserCache userCache)
     {
         this.playerService = playerService;
         this.sheetService = sheetService;
         this.rulesService = rulesService;
+        this.costServiceByUsage = costServiceByUsage;
+        this.batchValidationService = batchValidationService;
+        this.xpOptimizerService = xpOptimizerService;
+        this.avatarService = avatarService;
+        this.userCache = userCache;
     }
 
-    @GetMapping
-    public ResponseEntity<?> getAllPlayers()
+    /**
+     * Full user of the token, for the handlers that store or check the owner.
+     */
+    private User currentUser(AuthenticatedUser principal)
+    {
+        return principal != null ? userCache.get(principal.id()) : null;
+    }
+
+    /**
+     * GET /players?after=&limit=&name=&occupation=&userId= (also /players/summary)
+     * Lightweight roster: list columns only, keyset paginated by id.
+     * Pass the returned nextCursor as "after" to get the next page; full sheets come from /players/{id}.
+     */
+    @GetMapping({"", "/summary"})
+    public ResponseEntity<PlayerSummaryPageDTO> getPlayerSummaries(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String occupation,
+            @RequestParam(required = false) Long userId)
     {
-        logger.info("GET /players - retrieving all players");
-        return ResponseEntity.ok(playerService.getAllPlayers());
+        logger.info("GET /players - roster page after " + after);
+        return ResponseEntity.ok(playerService.getPlayerSummaries(after, limit, name, occupation, userId));
+    }
+
+    /**
+     * GET /players/{id}/avatar?v={hash}
+     * Raw avatar bytes from the content-addressed store, with the content hash as a strong ETag.
+     * With the v parameter of avatarUrl the address never changes its content, so it is cached
+     * as immutable; without it clients revalidate and get 304 while the image is unchanged.
+     */
+    @GetMapping("/{id}/avatar")
+    public ResponseEntity<byte[]> getAvatar(@PathVariable Long id, @RequestParam(required = false) String v, WebRequest request)
+    {
+        String hash = avatarService.getAvatarHash(id).orElse(null);
+        if (hash == null) {
+            return ResponseEntity.notFound().build();
+        }
+        CacheControl cacheControl = hash.equals(v)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache();
+        if (request.checkNotModified(hash)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(hash).cacheControl(cacheControl).build();
+        }
+
+        AvatarBlob blob = avatarService.find(hash).orElse(null);
+        if (blob == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .eTag(hash)
+                .cacheControl(cacheControl)
+                .header("X-Content-Type-Options", "nosniff")
+                .contentType(MediaType.parseMediaType(blob.getContentType()))
+                .contentLength(blob.getData().length)
+                .body(blob.getData());
+    }
+
+    /**
+     * GET /players/{id}/narrative
+     * Backstory texts of a character alone; stats and avatar are not loaded.
+     */
+    @GetMapping("/{id}/narrative")
+    public ResponseEntity<PlayerNarrative> getNarrative(@PathVariable Long id)
+    {
+        return ResponseEntity.ok(playerService.getNarrative(id));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<?> getPlayerById(@PathVariable Long id)
     {
         logger.info("GET /players/" + id + " - retrieving player");
-        return ResponseEntity.ok(playerService.getPlayerById(id));
+        Player player = playerService.getPlayerById(id);
+        return ResponseEntity.ok().eTag(String.valueOf(player.getVersion())).body(player);
     }
 
     @PostMapping
     public ResponseEntity<?> createPlayer(
             @Valid @RequestBody Player/*RequestDTO dto*/ player,
-            @AuthenticationPrincipal User user ) {
+            @AuthenticationPrincipal AuthenticatedUser principal ) {
         logger.info("POST /players - creating new player with character name: " + player.getName());
         //if (user == null)  throw new InvalidTokenException("Missing or invalid token");
-        Player/*ResponseDTO*/ created = playerService.createPlayer(player, user);
+        Player/*ResponseDTO*/ created = playerService.createPlayer(player, currentUser(principal));
         logger.info("Player created successfully with ID: " + created.getId());
-        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(String.valueOf(created.getVersion())).body(created);
     }
 
+    /**
+     * PUT /players/{id}
+     * With If-Match (the ETag of GET /players/{id}) the sheet is only saved if nobody changed the
+     * character since, otherwise 412. Without it the last writer wins, except for a change that
+     * lands while this one is being saved (412 as well). The response carries the new ETag.
+     */
     @PutMapping("/{id}")
     public ResponseEntity<?> updatePlayer(
             @PathVariable Long id,
             @Valid @RequestBody Player/*RequestDTO dto*/ player,
-            @AuthenticationPrincipal User user ) {
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @AuthenticationPrincipal AuthenticatedUser principal ) {
         logger.info("PUT /players/" + id + " - updating player");
         //if (user == null) throw new InvalidTokenException("Missing or invalid token");
-        Player/*ResponseDTO*/ updated = playerService.updatePlayer(id, player, user);
+        Player/*ResponseDTO*/ updated = playerService.updatePlayer(id, player, expectedVersion(id, ifMatch), currentUser(principal));
         logger.info("Player " + id + " updated successfully");
-        return ResponseEntity.ok(updated);
+        return ResponseEntity.ok().eTag(String.valueOf(updated.getVersion())).body(updated);
+    }
+
+    /**
+     * Version named by an If-Match header: null without one or for "*" (any current version),
+     * a tag that is not one of our versions can never match.
+     */
+    private static Long expectedVersion(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException(id);
+        }
+    }
+
+    /**
+     * POST /players/preview
+     * Stateless XP check for the editor: nothing is loaded or persisted.
+     */
+    @PostMapping("/preview")
+    public ResponseEntity<XPPreviewDTO> previewPlayer(@RequestBody Player player)
+    {
+        return ResponseEntity.ok(costServiceByUsage.preview(player));
+    }
+
+    /**
+     * POST /players/{id}/preview
+     * Same as /players/preview for an existing character; the stored sheet is not loaded.
+     */
+    @PostMapping("/{id}/preview")
+    public ResponseEntity<XPPreviewDTO> previewPlayer(@PathVariable Long id, @RequestBody Player player)
+    {
+        player.setId(id);
+        return ResponseEntity.ok(costServiceByUsage.preview(player));
+    }
+
+    /**
+     * POST /players/optimize
+     * Best allocation of an XP budget (default: the sheet's remaining XP) across weighted skills,
+     * e.g. {"player": {...}, "budget": 12000, "weights": {"SPOT": 1, "Listen": 1, "Dodge": 2}}.
+     */
+    @PostMapping("/optimize")
+    public ResponseEntity<XPOptimizeResponseDTO> optimizeXP(@RequestBody XPOptimizeRequestDTO request)
+    {
+        return ResponseEntity.ok(xpOptimizerService.optimize(request));
+    }
+
+    /**
+     * POST /players/validate-batch
+     * Accepts a JSON array or an NDJSON stream of sheets and streams one NDJSON result per sheet,
+     * in input order, while the request body is still being read.
+     */
+    @PostMapping(value = "/validate-batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public void validateBatch(HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        logger.info("POST /players/validate-batch - validating character batch");
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        batchValidationService.validate(request.getInputStream(), response.getOutputStream());
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deletePlayer(
             @PathVariable Long id,
-            @AuthenticationPrincipal User user
+            @AuthenticationPrincipal AuthenticatedUser principal
     )
     {
         logger.info("DELETE /players/" + id + " - deleting player");
         //if (user == null) throw new InvalidTokenException("Missing or invalid token");
-        playerService.deletePlayer(id, user);
+        playerService.deletePlayer(id, currentUser(principal));
         logger.info("Player " + id + " deleted successfully");
         return ResponseEntity.ok("Player deleted successfully");
     }
@@ -99,23 +273,59 @@ public class PlayerController
      * Frontend loads this to drive calculations consistently with backend.
      */
     @GetMapping("/rules")
-    public ResponseEntity<RulesSpec> getRulesSpec() {
+    public ResponseEntity<byte[]> getRulesSpec(WebRequest request) {
         logger.info("GET /players/rules - serving rules specification");
-        return ResponseEntity.ok(rulesService.getRulesSpec());
+        return RulesController.sendRules(rulesService.getSnapshot(), request);
     }
 
+    /**
+     * GET /players/{id}/sheet.html
+     * Rendered sheets are cached until the character changes. With app.sheet.asset-base-url set,
+     * images are linked from /sheets/assets by absolute URL and the sheet itself is a few KB;
+     * otherwise they are embedded so the file still works offline. Gzip clients get the copy
+     * compressed at render time. The ETag is the hash of the HTML; a matching If-None-Match gets 304, without
+     * loading the character when the sheet is cached.
+     */
     @GetMapping("/{id}/sheet.html")
-    public ResponseEntity<byte[]> downloadHtmlSheet(@PathVariable Long id) {
+    public ResponseEntity<byte[]> downloadHtmlSheet(@PathVariable Long id, WebRequest request) {
         //bunu kullanacaksan pronoun ve birthplace isimlerinde hata olabilir frontende bak
-        Player p = playerService.getPlayerById(id);
+        RenderedSheet sheet = sheetService.getSheet(id);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDisposition(ContentDisposition.attachment().filename(sheet.getFileName(), StandardCharsets.UTF_8).build());
+        return EncodedResponses.send(request, sheet.getContent(), MediaType.TEXT_HTML, headers);
+    }
+
+    /**
+     * GET /players/sheets.zip?ids=1,2,3 or ?userId=
+     * Sheets of a party (or of all characters of a user) in one ZIP, streamed while it is written.
+     */
+    @GetMapping("/sheets.zip")
+    public ResponseEntity<StreamingResponseBody> downloadSheetsZip(@RequestParam(required = false) List<Long> ids,
+                                                                   @RequestParam(required = false) Long userId) {
+        if ((ids == null || ids.isEmpty()) == (userId == null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        logger.info("GET /players/sheets.zip - " + (ids != null ? ids.size() + " characters" : "characters of user " + userId));
 
-        byte[] bytes = sheetService.generateCharacterHtml(p);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("character-sheets.zip").build().toString())
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(out -> sheetService.writeSheetsZip(ids, userId, out));
+    }
 
-        String fileName = (p.getName() != null ? p.getName() : "character") + "-sheet.html";
+    /**
+     * GET /players/{id}/sheet.html?inline=true
+     * Self-contained sheet with the images embedded, for opening offline. Streamed from the
+     * template, not cached.
+     */
+    @GetMapping(value = "/{id}/sheet.html", params = "inline=true")
+    public ResponseEntity<StreamingResponseBody> downloadInlineHtmlSheet(@PathVariable Long id) {
+        Player p = playerService.getPlayerById(id);
 
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(SheetService.fileName(p), StandardCharsets.UTF_8).build().toString())
                 .contentType(MediaType.TEXT_HTML)
-                .body(bytes);
+                .body(out -> sheetService.writeCharacterHtml(p, out, true));
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,23 @@
 package com.bora.d100.controller;
 
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
-import com.bora.d100.dto.RulesSpec;
+import com.bora.d100.security.AdminAccess;
+import com.bora.d100.service.EncodedPayload;
 import com.bora.d100.service.RulesService;
+import com.bora.d100.service.RulesSnapshot;
 
 /**
  * API endpoints for game rules specification.
@@ -17,10 +28,16 @@ import com.bora.d100.service.RulesService;
 @RequestMapping("/api/rules")
 public class RulesController {
 
+    static final String RULES_VERSION_HEADER = "X-Rules-Version";
+
+    private static final Logger logger = Logger.getLogger(RulesController.class.getName());
+
     private final RulesService rulesService;
+    private final AdminAccess adminAccess;
 
-    public RulesController(RulesService rulesService) {
+    public RulesController(RulesService rulesService, AdminAccess adminAccess) {
         this.rulesService = rulesService;
+        this.adminAccess = adminAccess;
     }
 
     /**
@@ -30,9 +47,60 @@ public class RulesController {
      * - Display base values for characteristics and skills
      * - Calculate XP costs using the same algorithm as backend
      * - Load penalty thresholds and multipliers
+     * The optional ruleset parameter selects a homebrew ruleset instead of the default rules.
+     * The JSON is serialized and gzipped once per rules version; clients that have the current
+     * rules get 304.
      */
     @GetMapping
-    public ResponseEntity<RulesSpec> getRulesSpec() {
-        return ResponseEntity.ok(rulesService.getRulesSpec());
+    public ResponseEntity<byte[]> getRulesSpec(@RequestParam(required = false) String ruleset, WebRequest request) {
+        return sendRules(rulesService.getSnapshot(ruleset), request);
+    }
+
+    /**
+     * GET /api/rules/cost-tables
+     * Compiled cumulative cost tables of the current rules (see CostTablesDTO): the client costs
+     * any raise with one subtraction and gets exactly the server's result. Encoded once per rules
+     * version, with the same ETag/304 handling as the spec.
+     */
+    @GetMapping("/cost-tables")
+    public ResponseEntity<byte[]> getCostTables(@RequestParam(required = false) String ruleset, WebRequest request) {
+        RulesSnapshot rules = rulesService.getSnapshot(ruleset);
+        return send(rules, rules.getCostTablesJson(), request);
+    }
+
+    static ResponseEntity<byte[]> sendRules(RulesSnapshot rules, WebRequest request) {
+        return send(rules, rules.getJson(), request);
+    }
+
+    private static ResponseEntity<byte[]> send(RulesSnapshot rules, EncodedPayload payload, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(RULES_VERSION_HEADER, rules.getVersion());
+        return EncodedResponses.send(request, payload, MediaType.APPLICATION_JSON, headers);
+    }
+
+    /**
+     * GET /api/rules/rulesets
+     * Available ruleset ids and their current versions (content hashes).
+     */
+    @GetMapping("/rulesets")
+    public ResponseEntity<Map<String, String>> getRulesets() {
+        return ResponseEntity.ok(rulesService.getRulesetVersions());
+    }
+
+    /**
+     * POST /api/rules/reload
+     * Reloads the rules source without a restart. The new snapshot is swapped in atomically;
+     * if the source is invalid the current rules stay active and an error is returned.
+     * Needs the admin token (X-Admin-Token), otherwise 403.
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, String>> reloadRules(
+            @RequestHeader(value = AdminAccess.HEADER, required = false) String adminToken) {
+        adminAccess.check(adminToken);
+        logger.info("POST /api/rules/reload - reloading rules specification");
+        RulesSnapshot rules = rulesService.reload();
+        return ResponseEntity.ok(Map.of(
+                "version", rules.getVersion(),
+                "loadedAt", rules.getLoadedAt().toString()));
     }
 }
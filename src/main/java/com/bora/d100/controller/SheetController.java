@@ -0,0 +1,47 @@
+package com.bora.d100.controller;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bora.d100.service.SheetAsset;
+import com.bora.d100.service.SheetService;
+
+/**
+ * Static parts of the character sheet.
+ */
+@RestController
+@RequestMapping("/sheets")
+public class SheetController {
+
+    private final SheetService sheetService;
+
+    public SheetController(SheetService sheetService) {
+        this.sheetService = sheetService;
+    }
+
+    /**
+     * GET /sheets/assets/{name}
+     * Images taken out of the sheet template. The name is the content hash, so a changed image gets
+     * a new URL and the response can be cached as immutable.
+     */
+    @GetMapping("/assets/{name:.+}")
+    public ResponseEntity<byte[]> getAsset(@PathVariable String name) {
+        SheetAsset asset = sheetService.getAsset(name);
+        if (asset == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .header("X-Content-Type-Options", "nosniff")
+                .contentType(MediaType.parseMediaType(asset.getContentType()))
+                .contentLength(asset.getData().length)
+                .body(asset.getData());
+    }
+}
@@ -0,0 +1,31 @@
+package com.bora.d100.dto;
+
+/**
+ * One line of the /players/validate-batch NDJSON response.
+ * index is the position of the sheet in the submitted array or stream.
+ */
+public class BatchValidationResultDTO
+{
+    private long index;
+    private Long playerId;
+    private String name;
+    private boolean valid;
+    private int expectedUsedXP;
+    private int reportedUsedXP;
+    private String error;
+
+    public long getIndex() {return index;}
+    public void setIndex(long index) {this.index = index;}
+    public Long getPlayerId() {return playerId;}
+    public void setPlayerId(Long playerId) {this.playerId = playerId;}
+    public String getName() {return name;}
+    public void setName(String name) {this.name = name;}
+    public boolean isValid() {return valid;}
+    public void setValid(boolean valid) {this.valid = valid;}
+    public int getExpectedUsedXP() {return expectedUsedXP;}
+    public void setExpectedUsedXP(int expectedUsedXP) {this.expectedUsedXP = expectedUsedXP;}
+    public int getReportedUsedXP() {return reportedUsedXP;}
+    public void setReportedUsedXP(int reportedUsedXP) {this.reportedUsedXP = reportedUsedXP;}
+    public String getError() {return error;}
+    public void setError(String error) {this.error = error;}
+}
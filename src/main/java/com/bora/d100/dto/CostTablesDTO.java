@@ -0,0 +1,49 @@
+package com.bora.d100.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled cumulative cost tables of one rules version, for clients that cost skills locally.
+ *
+ * tables: per cost key, base64 of a little-endian Float64Array (new Float64Array(bytes.buffer))
+ * with table[v] = cost of 0 -> v in ticks (1/ticksPerXP XP), for v in 0..maxValue. Every value is
+ * an exact integer. The cost of current -> target is Math.floor((table[target] - table[current]
+ * + ticksPerXP / 2) / ticksPerXP), the same rounding as the server.
+ * uncompiled lists cost keys without a table (costs not exact in ticks); for those and for values
+ * outside 0..maxValue the client has to ask the server (e.g. /players/preview).
+ */
+public class CostTablesDTO
+{
+    private String rulesVersion;
+    private int ticksPerXP;
+    private int maxValue;
+    private String encoding;
+    private Map<String, String> tables;
+    private List<String> uncompiled;
+
+    public CostTablesDTO() {
+    }
+
+    public CostTablesDTO(String rulesVersion, int ticksPerXP, int maxValue, String encoding, Map<String, String> tables, List<String> uncompiled) {
+        this.rulesVersion = rulesVersion;
+        this.ticksPerXP = ticksPerXP;
+        this.maxValue = maxValue;
+        this.encoding = encoding;
+        this.tables = tables;
+        this.uncompiled = uncompiled;
+    }
+
+    public String getRulesVersion() {return rulesVersion;}
+    public void setRulesVersion(String rulesVersion) {this.rulesVersion = rulesVersion;}
+    public int getTicksPerXP() {return ticksPerXP;}
+    public void setTicksPerXP(int ticksPerXP) {this.ticksPerXP = ticksPerXP;}
+    public int getMaxValue() {return maxValue;}
+    public void setMaxValue(int maxValue) {this.maxValue = maxValue;}
+    public String getEncoding() {return encoding;}
+    public void setEncoding(String encoding) {this.encoding = encoding;}
+    public Map<String, String> getTables() {return tables;}
+    public void setTables(Map<String, String> tables) {this.tables = tables;}
+    public List<String> getUncompiled() {return uncompiled;}
+    public void setUncompiled(List<String> uncompiled) {this.uncompiled = uncompiled;}
+}
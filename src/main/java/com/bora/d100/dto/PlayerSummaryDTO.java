@@ -0,0 +1,47 @@
+package com.bora.d100.dto;
+
+/**
+ * Roster row of GET /players/summary: only list columns, no avatar or narrative LOBs.
+ * avatarUrl is the cacheable avatar address (versioned by content hash), null if the character has no avatar.
+ */
+public class PlayerSummaryDTO
+{
+    private Long id;
+    private String name;
+    private String occupation;
+    private int level;
+    private int usedXP;
+    private Long userId;
+    private String owner;
+    private String avatarUrl;
+
+    public PlayerSummaryDTO(Long id, String name, String occupation, int level, int usedXP,
+                            Long userId, String owner, String avatarHash)
+    {
+        this.id = id;
+        this.name = name;
+        this.occupation = occupation;
+        this.level = level;
+        this.usedXP = usedXP;
+        this.userId = userId;
+        this.owner = owner;
+        this.avatarUrl = avatarHash != null ? "/players/" + id + "/avatar?v=" + avatarHash : null;
+    }
+
+    public Long getId() {return id;}
+    public void setId(Long id) {this.id = id;}
+    public String getName() {return name;}
+    public void setName(String name) {this.name = name;}
+    public String getOccupation() {return occupation;}
+    public void setOccupation(String occupation) {this.occupation = occupation;}
+    public int getLevel() {return level;}
+    public void setLevel(int level) {this.level = level;}
+    public int getUsedXP() {return usedXP;}
+    public void setUsedXP(int usedXP) {this.usedXP = usedXP;}
+    public Long getUserId() {return userId;}
+    public void setUserId(Long userId) {this.userId = userId;}
+    public String getOwner() {return owner;}
+    public void setOwner(String owner) {this.owner = owner;}
+    public String getAvatarUrl() {return avatarUrl;}
+    public void setAvatarUrl(String avatarUrl) {this.avatarUrl = avatarUrl;}
+}
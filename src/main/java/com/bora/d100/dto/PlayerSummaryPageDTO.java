@@ -0,0 +1,23 @@
+package com.bora.d100.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of the roster. nextCursor is the "after" value of the next page, null on the last page.
+ */
+public class PlayerSummaryPageDTO
+{
+    private List<PlayerSummaryDTO> items;
+    private Long nextCursor;
+
+    public PlayerSummaryPageDTO(List<PlayerSummaryDTO> items, Long nextCursor)
+    {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PlayerSummaryDTO> getItems() {return items;}
+    public void setItems(List<PlayerSummaryDTO> items) {this.items = items;}
+    public Long getNextCursor() {return nextCursor;}
+    public void setNextCursor(Long nextCursor) {this.nextCursor = nextCursor;}
+}
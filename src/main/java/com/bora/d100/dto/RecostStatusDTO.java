@@ -0,0 +1,50 @@
+package com.bora.d100.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Progress of the admin re-costing job.
+ * skipped counts characters saved while the job ran, which the job left as the save wrote them.
+ * negativeBudgetIds lists (at most the first 100) characters whose used XP now exceeds their total XP.
+ */
+public class RecostStatusDTO
+{
+    private String state;
+    private String rulesVersion;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long scanned;
+    private long updated;
+    private long failed;
+    private long skipped;
+    private long negativeBudget;
+    private List<Long> negativeBudgetIds;
+    private double rowsPerSecond;
+    private String error;
+
+    public String getState() {return state;}
+    public void setState(String state) {this.state = state;}
+    public String getRulesVersion() {return rulesVersion;}
+    public void setRulesVersion(String rulesVersion) {this.rulesVersion = rulesVersion;}
+    public Instant getStartedAt() {return startedAt;}
+    public void setStartedAt(Instant startedAt) {this.startedAt = startedAt;}
+    public Instant getFinishedAt() {return finishedAt;}
+    public void setFinishedAt(Instant finishedAt) {this.finishedAt = finishedAt;}
+    public long getScanned() {return scanned;}
+    public void setScanned(long scanned) {this.scanned = scanned;}
+    public long getUpdated() {return updated;}
+    public void setUpdated(long updated) {this.updated = updated;}
+    public long getFailed() {return failed;}
+    public void setFailed(long failed) {this.failed = failed;}
+    public long getSkipped() {return skipped;}
+    public void setSkipped(long skipped) {this.skipped = skipped;}
+    public long getNegativeBudget() {return negativeBudget;}
+    public void setNegativeBudget(long negativeBudget) {this.negativeBudget = negativeBudget;}
+    public List<Long> getNegativeBudgetIds() {return negativeBudgetIds;}
+    public void setNegativeBudgetIds(List<Long> negativeBudgetIds) {this.negativeBudgetIds = negativeBudgetIds;}
+    public double getRowsPerSecond() {return rowsPerSecond;}
+    public void setRowsPerSecond(double rowsPerSecond) {this.rowsPerSecond = rowsPerSecond;}
+    public String getError() {return error;}
+    public void setError(String error) {this.error = error;}
+}
@@ -0,0 +1,28 @@
+package com.bora.d100.dto;
+
+import java.util.Map;
+
+import com.bora.d100.model.Player;
+
+/**
+ * Request for /players/optimize.
+ * weights: skills to raise and how much each point is worth, keyed by field, rules or sheet name.
+ * budget defaults to the XP the sheet has left; maxValue caps every target value and can only
+ * lower the rules' own maximum.
+ */
+public class XPOptimizeRequestDTO
+{
+    private Player player;
+    private Integer budget;
+    private Map<String, Double> weights;
+    private Integer maxValue;
+
+    public Player getPlayer() {return player;}
+    public void setPlayer(Player player) {this.player = player;}
+    public Integer getBudget() {return budget;}
+    public void setBudget(Integer budget) {this.budget = budget;}
+    public Map<String, Double> getWeights() {return weights;}
+    public void setWeights(Map<String, Double> weights) {this.weights = weights;}
+    public Integer getMaxValue() {return maxValue;}
+    public void setMaxValue(Integer maxValue) {this.maxValue = maxValue;}
+}
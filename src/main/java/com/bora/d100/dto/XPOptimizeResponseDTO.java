@@ -0,0 +1,34 @@
+package com.bora.d100.dto;
+
+import java.util.Map;
+
+/**
+ * Best allocation found by /players/optimize.
+ * targets and costs are keyed by Player field name; exact is false when the budget was too
+ * large for the exact allocator and the greedy approximation was used instead.
+ */
+public class XPOptimizeResponseDTO
+{
+    private Map<String, Integer> targets;
+    private Map<String, Integer> costs;
+    private int budget;
+    private int spentXP;
+    private int remainingXP;
+    private double score;
+    private boolean exact;
+
+    public Map<String, Integer> getTargets() {return targets;}
+    public void setTargets(Map<String, Integer> targets) {this.targets = targets;}
+    public Map<String, Integer> getCosts() {return costs;}
+    public void setCosts(Map<String, Integer> costs) {this.costs = costs;}
+    public int getBudget() {return budget;}
+    public void setBudget(int budget) {this.budget = budget;}
+    public int getSpentXP() {return spentXP;}
+    public void setSpentXP(int spentXP) {this.spentXP = spentXP;}
+    public int getRemainingXP() {return remainingXP;}
+    public void setRemainingXP(int remainingXP) {this.remainingXP = remainingXP;}
+    public double getScore() {return score;}
+    public void setScore(double score) {this.score = score;}
+    public boolean isExact() {return exact;}
+    public void setExact(boolean exact) {this.exact = exact;}
+}
@@ -0,0 +1,51 @@
+package com.bora.d100.dto;
+
+import java.util.Map;
+
+/**
+ * Server verdict on a character sheet without persisting it.
+ * costs: XP spent per characteristic/skill from its base value, keyed by rules spec key.
+ */
+public class XPPreviewDTO
+{
+    private Long playerId;
+    private boolean valid;
+    private int reportedUsedXP;
+    private int usedXP;
+    private int totalXP;
+    private int remainingXP;
+    private int level;
+    private int build;
+    private String damageBonus;
+    private int HP;
+    private int MP;
+    private Map<String, Integer> costs;
+    private String rulesVersion;
+
+    public Long getPlayerId() {return playerId;}
+    public void setPlayerId(Long playerId) {this.playerId = playerId;}
+    public boolean isValid() {return valid;}
+    public void setValid(boolean valid) {this.valid = valid;}
+    public int getReportedUsedXP() {return reportedUsedXP;}
+    public void setReportedUsedXP(int reportedUsedXP) {this.reportedUsedXP = reportedUsedXP;}
+    public int getUsedXP() {return usedXP;}
+    public void setUsedXP(int usedXP) {this.usedXP = usedXP;}
+    public int getTotalXP() {return totalXP;}
+    public void setTotalXP(int totalXP) {this.totalXP = totalXP;}
+    public int getRemainingXP() {return remainingXP;}
+    public void setRemainingXP(int remainingXP) {this.remainingXP = remainingXP;}
+    public int getLevel() {return level;}
+    public void setLevel(int level) {this.level = level;}
+    public int getBuild() {return build;}
+    public void setBuild(int build) {this.build = build;}
+    public String getDamageBonus() {return damageBonus;}
+    public void setDamageBonus(String damageBonus) {this.damageBonus = damageBonus;}
+    public int getHP() {return HP;}
+    public void setHP(int HP) {this.HP = HP;}
+    public int getMP() {return MP;}
+    public void setMP(int MP) {this.MP = MP;}
+    public Map<String, Integer> getCosts() {return costs;}
+    public void setCosts(Map<String, Integer> costs) {this.costs = costs;}
+    public String getRulesVersion() {return rulesVersion;}
+    public void setRulesVersion(String rulesVersion) {this.rulesVersion = rulesVersion;}
+}
@@ -0,0 +1,13 @@
+package com.bora.d100.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.FORBIDDEN)
+public class AdminAccessDeniedException extends RuntimeException
+{
+    public AdminAccessDeniedException()
+    {
+        super("This endpoint needs a valid admin token");
+    }
+}
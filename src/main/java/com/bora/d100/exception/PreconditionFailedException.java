@@ -0,0 +1,13 @@
+package com.bora.d100.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException
+{
+    public PreconditionFailedException(Long playerId)
+    {
+        super("Player " + playerId + " was changed by another request, reload it and try again");
+    }
+}
@@ -0,0 +1,9 @@
+package com.bora.d100.exception;
+
+public class RulesetNotFoundException extends RuntimeException
+{
+    public RulesetNotFoundException(String rulesetId)
+    {
+        super("Ruleset " + rulesetId + " not found.");
+    }
+}
@@ -0,0 +1,117 @@
+package com.bora.d100.migration;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bora.d100.service.AvatarService;
+
+/**
+ * One-off move of the legacy player.avatar column (data URLs, a large object on PostgreSQL)
+ * into the avatar store. Rows are migrated in id order, one transaction per page. The emptied
+ * legacy column is kept unless app.migration.avatars.drop-column is set; once it is dropped,
+ * later startups only check the metadata.
+ */
+@Component
+public class AvatarMigration implements ApplicationRunner
+{
+    private static final Logger logger = Logger.getLogger(AvatarMigration.class.getName());
+
+    private static final int PAGE_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final AvatarService avatarService;
+    private final boolean enabled;
+    private final boolean dropColumn;
+
+    private record LegacyAvatar(long id, String dataUrl, Long largeObject) {
+    }
+
+    public AvatarMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, AvatarService avatarService,
+                           @Value("${app.migration.avatars:true}") boolean enabled,
+                           @Value("${app.migration.avatars.drop-column:false}") boolean dropColumn)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.avatarService = avatarService;
+        this.enabled = enabled;
+        this.dropColumn = dropColumn;
+    }
+
+    @Override
+    public void run(ApplicationArguments args)
+    {
+        if (!enabled || !LegacyColumns.exists(jdbcTemplate, "player", "avatar")) {
+            return;
+        }
+        try {
+            migrate();
+        } catch (RuntimeException e) {
+            // Migrated pages are committed, the rest is retried on the next startup
+            logger.severe("Avatar migration stopped: " + e);
+        }
+    }
+
+    private void migrate()
+    {
+        long lastId = 0;
+        int migrated = 0;
+        int failed = 0;
+        while (true) {
+            long after = lastId;
+            List<LegacyAvatar> page = transaction.execute(status -> jdbcTemplate.query(
+                    "select id, avatar from player where avatar is not null and id > ? order by id limit ?",
+                    (rs, row) -> read(rs), after, PAGE_SIZE));
+            if (page == null || page.isEmpty()) {
+                break;
+            }
+            lastId = page.get(page.size() - 1).id();
+
+            List<Object[]> updates = new ArrayList<>();
+            List<Object[]> unlinks = new ArrayList<>();
+            for (LegacyAvatar avatar : page) {
+                try {
+                    updates.add(new Object[] {avatarService.store(avatar.dataUrl()), avatar.id()});
+                    if (avatar.largeObject() != null) {
+                        unlinks.add(new Object[] {avatar.largeObject()});
+                    }
+                } catch (IllegalArgumentException e) {
+                    failed++;
+                    logger.warning("Avatar of player " + avatar.id() + " not migrated: " + e.getMessage());
+                }
+            }
+            transaction.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate("update player set avatar_hash = ?, avatar = null where id = ?", updates);
+                // The large objects are not freed by clearing the reference
+                for (Object[] unlink : unlinks) {
+                    jdbcTemplate.queryForObject("select lo_unlink(?)", Integer.class, unlink);
+                }
+            });
+            migrated += updates.size();
+        }
+
+        if (migrated > 0 || failed > 0) {
+            logger.info("Avatar migration finished: " + migrated + " moved, " + failed + " left in player.avatar");
+        }
+        if (dropColumn && failed == 0) {
+            jdbcTemplate.execute("alter table player drop column avatar");
+            logger.info("Dropped the legacy player.avatar column");
+        }
+    }
+
+    private LegacyAvatar read(ResultSet rs) throws SQLException
+    {
+        return new LegacyAvatar(rs.getLong("id"), LegacyColumns.readText(rs, 2), LegacyColumns.largeObjectId(rs, 2));
+    }
+}
@@ -0,0 +1,176 @@
+package com.bora.d100.migration;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntSupplier;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bora.d100.mapper.SkillsConverter;
+import com.bora.d100.model.Player;
+import com.bora.d100.model.SkillId;
+
+/**
+ * Converts stored characters when the skill storage mode changes.
+ *
+ * With app.skills.compact=true (profile compact-skills) rows without a skills map get one built
+ * from their int columns; with the default mode rows that still carry a map get their int columns
+ * back and the map cleared. Either way a page is converted per transaction until no row is left,
+ * so switching the mode back and forth never loses values. In compact mode the int columns are
+ * made nullable, or dropped once every row is compact with app.skills.compact.drop-columns.
+ * Only columns still to be changed are altered (each alter locks the whole table), so later
+ * startups in the same mode touch no DDL.
+ */
+@Component
+public class CompactSkillsMigration implements ApplicationRunner
+{
+    private static final Logger logger = Logger.getLogger(CompactSkillsMigration.class.getName());
+
+    private static final int PAGE_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final SkillsConverter skillsConverter = new SkillsConverter();
+    private final boolean enabled;
+    private final boolean compact;
+    private final boolean dropColumns;
+    private final List<String> columns;
+
+    public CompactSkillsMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  @Value("${app.migration.compact-skills:true}") boolean enabled,
+                                  @Value("${app.skills.compact:false}") boolean compact,
+                                  @Value("${app.skills.compact.drop-columns:false}") boolean dropColumns)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.compact = compact;
+        this.dropColumns = dropColumns;
+        this.columns = new ArrayList<>();
+        for (SkillId skill : SkillId.values()) {
+            columns.add(columnName(skill.getFieldName()));
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args)
+    {
+        if (!enabled || !LegacyColumns.exists(jdbcTemplate, "player", columns.get(0))) {
+            return;
+        }
+        try {
+            int converted = compact ? convert(this::toCompactPage) : convert(this::toColumnsPage);
+            if (converted > 0) {
+                logger.info("Converted " + converted + " players to " + (compact ? "compact" : "per-column") + " skill storage");
+            }
+            if (compact) {
+                // New compact rows leave the int columns empty, the primitive mapping created them "not null"
+                List<String> pending = pendingColumns();
+                for (String column : pending) {
+                    jdbcTemplate.execute("alter table player " + (dropColumns ? "drop column " + column : "alter column " + column + " drop not null"));
+                }
+                if (!pending.isEmpty()) {
+                    logger.info((dropColumns ? "Dropped " : "Made nullable ") + pending.size() + " per-column skill storage columns");
+                }
+            }
+        } catch (RuntimeException e) {
+            // Converted pages are committed, the rest is retried on the next startup
+            logger.severe("Skill storage conversion stopped: " + e);
+        }
+    }
+
+    /**
+     * Skill columns still present (to drop) or still "not null" (to relax), from information_schema.
+     */
+    private List<String> pendingColumns()
+    {
+        String sql = "select column_name from information_schema.columns"
+                + " where table_schema = current_schema() and table_name = 'player'"
+                + " and column_name in (" + String.join(", ", columns.stream().map(column -> "?").toList()) + ")"
+                + (dropColumns ? "" : " and is_nullable = 'NO'");
+        return jdbcTemplate.queryForList(sql, String.class, columns.toArray());
+    }
+
+    private int convert(IntSupplier page)
+    {
+        int converted = 0;
+        while (true) {
+            // Converted rows no longer match the page query, so every page starts from the first row left
+            Integer count = transaction.execute(status -> page.getAsInt());
+            if (count == null || count == 0) {
+                return converted;
+            }
+            converted += count;
+        }
+    }
+
+    private int toCompactPage()
+    {
+        List<Object[]> updates = jdbcTemplate.query(
+                "select id, " + String.join(", ", columns) + " from player where skills is null order by id limit ?",
+                (rs, row) -> new Object[] {skillsConverter.convertToDatabaseColumn(readColumns(rs)), rs.getLong("id")},
+                PAGE_SIZE);
+        jdbcTemplate.batchUpdate("update player set skills = ? where id = ?", updates);
+        return updates.size();
+    }
+
+    private int toColumnsPage()
+    {
+        List<Object[]> updates = jdbcTemplate.query(
+                "select id, skills from player where skills is not null order by id limit ?",
+                (rs, row) -> {
+                    Map<String, Integer> skills = skillsConverter.convertToEntityAttribute(rs.getString("skills"));
+                    Object[] values = new Object[columns.size() + 1];
+                    for (SkillId skill : SkillId.values()) {
+                        values[skill.ordinal()] = skills.getOrDefault(skill.getFieldName(), 0);
+                    }
+                    values[columns.size()] = rs.getLong("id");
+                    return values;
+                },
+                PAGE_SIZE);
+        jdbcTemplate.batchUpdate("update player set " + String.join(" = ?, ", columns) + " = ?, skills = null where id = ?", updates);
+        return updates.size();
+    }
+
+    private Map<String, Integer> readColumns(ResultSet rs) throws SQLException
+    {
+        // Same layout as Player.packSkills
+        Map<String, Integer> skills = new LinkedHashMap<>();
+        skills.put(Player.SKILLS_FORMAT_KEY, Player.SKILLS_FORMAT_VERSION);
+        for (SkillId skill : SkillId.values()) {
+            skills.put(skill.getFieldName(), rs.getInt(columns.get(skill.ordinal())));
+        }
+        return skills;
+    }
+
+    /**
+     * Column of a Player field under the default physical naming strategy (camel case to snake case):
+     * "AnimalHandling" -> "animal_handling", "APP" -> "app", "LanguageOther1" -> "language_other1".
+     */
+    static String columnName(String fieldName)
+    {
+        StringBuilder name = new StringBuilder(fieldName);
+        for (int i = 1; i < name.length() - 1; i++) {
+            char before = name.charAt(i - 1);
+            char current = name.charAt(i);
+            char after = name.charAt(i + 1);
+            if ((Character.isLowerCase(before) || Character.isDigit(before)) && Character.isUpperCase(current)
+                    && (Character.isLowerCase(after) || Character.isDigit(after))) {
+                name.insert(i++, '_');
+            }
+        }
+        return name.toString().toLowerCase(Locale.ROOT);
+    }
+}
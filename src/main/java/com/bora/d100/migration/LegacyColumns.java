@@ -0,0 +1,59 @@
+package com.bora.d100.migration;
+
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC helpers for columns that were mapped with @Lob String. On PostgreSQL these are oid
+ * columns: the value is a reference to a large object, read through getClob and freed with lo_unlink.
+ */
+final class LegacyColumns
+{
+    private LegacyColumns()
+    {
+    }
+
+    static boolean exists(JdbcTemplate jdbcTemplate, String table, String column)
+    {
+        Boolean exists = jdbcTemplate.execute((Connection connection) -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet columns = metaData.getColumns(null, null, table, column)) {
+                return columns.next();
+            }
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+
+    static String readText(ResultSet rs, int column) throws SQLException
+    {
+        if (isLargeObject(rs, column) || rs.getMetaData().getColumnType(column) == Types.CLOB) {
+            Clob clob = rs.getClob(column);
+            return clob != null ? clob.getSubString(1, (int) clob.length()) : null;
+        }
+        return rs.getString(column);
+    }
+
+    /**
+     * Large object id of an oid column, null for text columns or null values.
+     */
+    static Long largeObjectId(ResultSet rs, int column) throws SQLException
+    {
+        if (!isLargeObject(rs, column)) {
+            return null;
+        }
+        long oid = rs.getLong(column);
+        return rs.wasNull() ? null : oid;
+    }
+
+    private static boolean isLargeObject(ResultSet rs, int column) throws SQLException
+    {
+        int type = rs.getMetaData().getColumnType(column);
+        return type == Types.BIGINT || type == Types.INTEGER;
+    }
+}
@@ -0,0 +1,126 @@
+package com.bora.d100.migration;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * One-off copy of the backstory columns of the player row into player_narrative.
+ * Each page is migrated in one transaction: the texts are copied and the player gets its
+ * narrative_id. The legacy columns stay untouched unless app.migration.narratives.drop-columns
+ * is set; then their large objects are freed and the columns dropped once every row is copied.
+ */
+@Component
+public class NarrativeMigration implements ApplicationRunner
+{
+    private static final Logger logger = Logger.getLogger(NarrativeMigration.class.getName());
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final List<String> COLUMNS = List.of(
+            "bag_surface", "significant_people", "injuries_scars_phobies_manias",
+            "bag_middle", "treasured_possesions", "arcane_tomes_spells_artifacts",
+            "bag_deep", "meaningful_locations", "encounters_with_strange_entities");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final boolean enabled;
+    private final boolean dropColumns;
+    private final String selectSql;
+    private final String insertSql;
+
+    private record LegacyNarrative(long playerId, String[] texts) {
+    }
+
+    public NarrativeMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              @Value("${app.migration.narratives:true}") boolean enabled,
+                              @Value("${app.migration.narratives.drop-columns:false}") boolean dropColumns)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.dropColumns = dropColumns;
+
+        String columns = String.join(", ", COLUMNS);
+        this.selectSql = "select id, " + columns + " from player"
+                + " where narrative_id is null and (" + String.join(" is not null or ", COLUMNS) + " is not null)"
+                + " order by id limit ?";
+        this.insertSql = "insert into player_narrative (" + columns + ") values ("
+                + String.join(", ", COLUMNS.stream().map(column -> "?").toList()) + ") returning id";
+    }
+
+    @Override
+    public void run(ApplicationArguments args)
+    {
+        if (!enabled || !LegacyColumns.exists(jdbcTemplate, "player", COLUMNS.get(0))) {
+            return;
+        }
+        try {
+            migrate();
+        } catch (RuntimeException e) {
+            // Migrated pages are committed, the rest is retried on the next startup
+            logger.severe("Narrative migration stopped: " + e);
+        }
+    }
+
+    private void migrate()
+    {
+        int migrated = 0;
+        while (true) {
+            // Migrated rows get a narrative_id, so every page starts from the first row left
+            Integer moved = transaction.execute(status -> {
+                List<LegacyNarrative> page = jdbcTemplate.query(selectSql, (rs, row) -> read(rs), PAGE_SIZE);
+                for (LegacyNarrative narrative : page) {
+                    Long narrativeId = jdbcTemplate.queryForObject(insertSql, Long.class, (Object[]) narrative.texts());
+                    jdbcTemplate.update("update player set narrative_id = ? where id = ?", narrativeId, narrative.playerId());
+                }
+                return page.size();
+            });
+            if (moved == null || moved == 0) {
+                break;
+            }
+            migrated += moved;
+        }
+
+        if (migrated > 0) {
+            logger.info("Narrative migration finished: " + migrated + " narratives copied");
+        }
+        if (dropColumns) {
+            transaction.executeWithoutResult(status -> dropLegacyColumns());
+            logger.info("Dropped the legacy narrative columns of player");
+        }
+    }
+
+    private void dropLegacyColumns()
+    {
+        for (String column : COLUMNS) {
+            // The large objects are not freed by dropping the columns
+            List<Long> largeObjects = jdbcTemplate.query("select " + column + " from player where " + column + " is not null",
+                    (rs, row) -> LegacyColumns.largeObjectId(rs, 1));
+            for (Long largeObject : largeObjects) {
+                if (largeObject != null) {
+                    jdbcTemplate.queryForObject("select lo_unlink(?)", Integer.class, largeObject);
+                }
+            }
+            jdbcTemplate.execute("alter table player drop column " + column);
+        }
+    }
+
+    private LegacyNarrative read(ResultSet rs) throws SQLException
+    {
+        String[] texts = new String[COLUMNS.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = LegacyColumns.readText(rs, i + 2);
+        }
+        return new LegacyNarrative(rs.getLong("id"), texts);
+    }
+}
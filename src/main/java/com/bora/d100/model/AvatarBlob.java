@@ -0,0 +1,44 @@
+package com.bora.d100.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.NoArgsConstructor;
+
+/**
+ * Avatar image in the content-addressed store. The id is the SHA-256 of the bytes,
+ * so identical images are stored once and a stored blob never changes.
+ */
+@Entity
+@Table(name = "avatar_blob")
+@NoArgsConstructor
+public class AvatarBlob
+{
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private String contentType;
+
+    @Column(nullable = false)
+    private byte[] data;
+
+    private Instant createdAt;
+
+    public AvatarBlob(String hash, String contentType, byte[] data)
+    {
+        this.hash = hash;
+        this.contentType = contentType;
+        this.data = data;
+        this.createdAt = Instant.now();
+    }
+
+    public String getHash() { return hash; }
+    public String getContentType() { return contentType; }
+    public byte[] getData() { return data; }
+    public Instant getCreatedAt() { return createdAt; }
+}
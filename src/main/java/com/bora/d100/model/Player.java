@@ -1,62 +1,86 @@
 package com.bora.d100.model;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Length;
+import org.hibernate.annotations.ColumnDefault;
+
+import com.bora.d100.mapper.SkillsConverter;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Entity
 @Data
 @NoArgsConstructor
 public class Player {
 
+    public static final String SKILLS_FORMAT_KEY = "_v";
+    public static final int SKILLS_FORMAT_VERSION = 1;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     public Long id;
 
-    @Lob
-    @Column(name = "avatar")
+    // Optimistic lock, sent as the ETag of the character; rows from before the column start at 0
+    @Version
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
+    // Upload only: a data URL sent by the client, moved into the avatar store on save (AvatarService)
+    @Transient
     private String avatar;
 
+    // Content hash of the avatar in the avatar store, null if the character has none
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String avatarHash;
+
     private String player;
     private String name;
     private String birthPlace;
     private String pronoun;
     private String occupation;
     private String residence;
-    @Lob
-    private String bagSurface;
-    @Lob
-    private String significantPeople;
-    @Lob
-    private String injuriesScarsPhobiesManias;
-    @Lob
-    private String bagMiddle;
-    @Lob
-    private String treasuredPossesions;
-    @Lob
-    private String arcaneTomesSpellsArtifacts;
-    @Lob
-    private String bagDeep;
-    @Lob
-    private String meaningfulLocations;
-    @Lob
-    private String encountersWithStrangeEntities;
+    // Backstory texts live in their own row, loaded only when a sheet or the narrative endpoint needs them
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "narrative_id")
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private PlayerNarrative narrative;
     private int age;
     private int totalXP;
 
     private int usedXP;
     private int remainingXP;
     private int level;
+    // Ruleset the sheet is costed with (null = default) and the rules version it was last validated against
+    private String rulesetId;
+    private String rulesVersion;
     private int Build;
     private String damageBonus;
     private int MP;
@@ -152,186 +176,234 @@ public class Player {
     @JoinColumn(name = "user_id")
     private User user;
 
+    // Compact storage mode: all characteristics and skills as one version-tagged map, kept in sync by
+    // packSkills/unpackSkills. Read-only here; META-INF/orm-compact-skills.xml makes it writable and
+    // the int columns transient, so by default the column stays empty
+    @Convert(converter = SkillsConverter.class)
+    @Column(name = "skills", length = Length.LONG32, insertable = false, updatable = false)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Map<String, Integer> skills;
+
     public int getSkill(String skill) {
+        return getSkill(resolveSkill(skill));
+    }
+
+    public void setSkill(String skill, int value) {
+        setSkill(resolveSkill(skill), value);
+    }
+
+    public int getSkill(SkillId skill) {
         switch (skill) {
-            // Characteristics
-            case "APP": return APP;
-            case "BONUS": return BONUS;
-            case "BRV": return BRV;
-            case "CON": return CON;
-            case "DEX": return DEX;
-            case "EDU": return EDU;
-            case "INT": return INT;
-            case "LUCK": return LUCK;
-            case "SENSE": return SENSE;
-            case "WILL": return WILL;
-            case "STATUS": return STATUS;
-            case "SAN": return SAN;
-            case "SIZ": return SIZ;
-            case "STR": return STR;
-            case "ARMOR": return ARMOR;
-            case "RES": return RES;
-            case "Accounting": return Accounting;
-            case "AnimalHandling": return AnimalHandling;
-            case "Anthropology": return Anthropology;
-            case "Appraise": return Appraise;
-            case "Archeology": return Archeology;
-            case "ArtCraft": return ArtCraft;
-            case "ArtCraft2": return ArtCraft2;
-            case "Artillery": return Artillery;
-            case "Charm": return Charm;
-            case "Climb": return Climb;
-            case "ComputerUse": return ComputerUse;
-            case "CreditRating": return CreditRating;
-            case "CthulhuMythos": return CthulhuMythos;
-            case "Demolitions": return Demolitions;
-            case "Disguise": return Disguise;
-            case "Dodge": return Dodge;
-            case "DriveAuto": return DriveAuto;
-            case "Electronics": return Electronics;
-            case "ElectricalRepair": return ElectricalRepair;
-            case "FastTalk": return FastTalk;
-            case "FightingBrawl": return FightingBrawl;
-            case "FightingOther": return FightingOther;
-            case "FirearmsHandgun": return FirearmsHandgun;
-            case "FirearmsOther": return FirearmsOther;
-            case "FirearmsRifleShotgun": return FirearmsRifleShotgun;
-            case "FirstAid": return FirstAid;
-            case "History": return History;
-            case "Hypnosis": return Hypnosis;
-            case "Intimidate": return Intimidate;
-            case "Jump": return Jump;
-            case "LanguageOther1": return LanguageOther1;
-            case "LanguageOther2": return LanguageOther2;
-            case "LanguageOther3": return LanguageOther3;
-            case "LanguageOwn": return LanguageOwn;
-            case "Law": return Law;
-            case "LibraryUse": return LibraryUse;
-            case "Listen": return Listen;
-            case "Locksmith": return Locksmith;
-            case "MechanicalRepair": return MechanicalRepair;
-            case "Medicine": return Medicine;
-            case "NaturalWorld": return NaturalWorld;
-            case "Navigate": return Navigate;
-            case "Occult": return Occult;
-            case "OperateHeavyMachinery": return OperateHeavyMachinery;
-            case "Persuade": return Persuade;
-            case "Pilot": return Pilot;
-            case "Psychoanalysis": return Psychoanalysis;
-            case "Psychology": return Psychology;
-            case "ReadLips": return ReadLips;
-            case "Ride": return Ride;
-            case "Science": return Science;
-            case "ScienceOther": return ScienceOther;
-            case "ScienceOther2": return ScienceOther2;
-            case "SignLanguage": return SignLanguage;
-            case "Deception": return Deception;
-            case "SleightOfHand": return SleightOfHand;
-            case "SPOT": return SPOT;
-            case "Stealth": return Stealth;
-            case "Survival": return Survival;
-            case "Swim": return Swim;
-            case "Throw": return Throw;
-            case "Track": return Track;
-            case "UncommonLanguage": return UncommonLanguage;
-            case "Other1": return Other1;
-            case "Other2": return Other2;
-            case "Other3": return Other3;
+            case APP: return APP;
+            case BONUS: return BONUS;
+            case BRV: return BRV;
+            case CON: return CON;
+            case DEX: return DEX;
+            case EDU: return EDU;
+            case INT: return INT;
+            case LUCK: return LUCK;
+            case SENSE: return SENSE;
+            case WILL: return WILL;
+            case STATUS: return STATUS;
+            case SAN: return SAN;
+            case SIZ: return SIZ;
+            case STR: return STR;
+            case ARMOR: return ARMOR;
+            case RES: return RES;
+            case SPOT: return SPOT;
+            case ACCOUNTING: return Accounting;
+            case ANIMAL_HANDLING: return AnimalHandling;
+            case ANTHROPOLOGY: return Anthropology;
+            case APPRAISE: return Appraise;
+            case ARCHEOLOGY: return Archeology;
+            case ART_CRAFT: return ArtCraft;
+            case ART_CRAFT_2: return ArtCraft2;
+            case ARTILLERY: return Artillery;
+            case CHARM: return Charm;
+            case CLIMB: return Climb;
+            case COMPUTER_USE: return ComputerUse;
+            case CREDIT_RATING: return CreditRating;
+            case CTHULHU_MYTHOS: return CthulhuMythos;
+            case DEMOLITIONS: return Demolitions;
+            case DISGUISE: return Disguise;
+            case DODGE: return Dodge;
+            case DRIVE_AUTO: return DriveAuto;
+            case ELECTRONICS: return Electronics;
+            case ELECTRICAL_REPAIR: return ElectricalRepair;
+            case FAST_TALK: return FastTalk;
+            case FIGHTING_BRAWL: return FightingBrawl;
+            case FIGHTING_OTHER: return FightingOther;
+            case FIREARMS_HANDGUN: return FirearmsHandgun;
+            case FIREARMS_OTHER: return FirearmsOther;
+            case FIREARMS_RIFLE_SHOTGUN: return FirearmsRifleShotgun;
+            case FIRST_AID: return FirstAid;
+            case HISTORY: return History;
+            case HYPNOSIS: return Hypnosis;
+            case INTIMIDATE: return Intimidate;
+            case JUMP: return Jump;
+            case LANGUAGE_OTHER_1: return LanguageOther1;
+            case LANGUAGE_OTHER_2: return LanguageOther2;
+            case LANGUAGE_OTHER_3: return LanguageOther3;
+            case LANGUAGE_OWN: return LanguageOwn;
+            case LAW: return Law;
+            case LIBRARY_USE: return LibraryUse;
+            case LISTEN: return Listen;
+            case LOCKSMITH: return Locksmith;
+            case MECHANICAL_REPAIR: return MechanicalRepair;
+            case MEDICINE: return Medicine;
+            case NATURAL_WORLD: return NaturalWorld;
+            case NAVIGATE: return Navigate;
+            case OCCULT: return Occult;
+            case OPERATE_HEAVY_MACHINERY: return OperateHeavyMachinery;
+            case PERSUADE: return Persuade;
+            case PILOT: return Pilot;
+            case PSYCHOANALYSIS: return Psychoanalysis;
+            case PSYCHOLOGY: return Psychology;
+            case READ_LIPS: return ReadLips;
+            case RIDE: return Ride;
+            case SCIENCE: return Science;
+            case SCIENCE_OTHER: return ScienceOther;
+            case SCIENCE_OTHER_2: return ScienceOther2;
+            case SIGN_LANGUAGE: return SignLanguage;
+            case DECEPTION: return Deception;
+            case SLEIGHT_OF_HAND: return SleightOfHand;
+            case STEALTH: return Stealth;
+            case SURVIVAL: return Survival;
+            case SWIM: return Swim;
+            case THROW: return Throw;
+            case TRACK: return Track;
+            case UNCOMMON_LANGUAGE: return UncommonLanguage;
+            case OTHER_1: return Other1;
+            case OTHER_2: return Other2;
+            case OTHER_3: return Other3;
             default:
                 throw new IllegalArgumentException("Unknown skill: " + skill);
         }
     }
 
-    public void setSkill(String skill, int value) {
+    public void setSkill(SkillId skill, int value) {
         switch (skill) {
-            // Characteristics
-            case "APP": APP = value; break;
-            case "BONUS": BONUS = value; break;
-            case "BRV": BRV = value; break;
-            case "CON": CON = value; break;
-            case "DEX": DEX = value; break;
-            case "EDU": EDU = value; break;
-            case "INT": INT = value; break;
-            case "LUCK": LUCK = value; break;
-            case "SENSE": SENSE = value; break;
-            case "WILL": WILL = value; break;
-            case "STATUS": STATUS = value; break;
-            case "SAN": SAN = value; break;
-            case "SIZ": SIZ = value; break;
-            case "STR": STR = value; break;
-            case "ARMOR": ARMOR = value; break;
-            case "RES": RES = value; break;
-            case "Accounting": Accounting = value; break;
-            case "AnimalHandling": AnimalHandling = value; break;
-            case "Anthropology": Anthropology = value; break;
-            case "Appraise": Appraise = value; break;
-            case "Archeology": Archeology = value; break;
-            case "ArtCraft": ArtCraft = value; break;
-            case "ArtCraft2": ArtCraft2 = value; break;
-            case "Artillery": Artillery = value; break;
-            case "Charm": Charm = value; break;
-            case "Climb": Climb = value; break;
-            case "ComputerUse": ComputerUse = value; break;
-            case "CreditRating": CreditRating = value; break;
-            case "CthulhuMythos": CthulhuMythos = value; break;
-            case "Demolitions": Demolitions = value; break;
-            case "Disguise": Disguise = value; break;
-            case "Dodge": Dodge = value; break;
-            case "DriveAuto": DriveAuto = value; break;
-            case "Electronics": Electronics = value; break;
-            case "ElectricalRepair": ElectricalRepair = value; break;
-            case "FastTalk": FastTalk = value; break;
-            case "FightingBrawl": FightingBrawl = value; break;
-            case "FightingOther": FightingOther = value; break;
-            case "FirearmsHandgun": FirearmsHandgun = value; break;
-            case "FirearmsOther": FirearmsOther = value; break;
-            case "FirearmsRifleShotgun": FirearmsRifleShotgun = value; break;
-            case "FirstAid": FirstAid = value; break;
-            case "History": History = value; break;
-            case "Hypnosis": Hypnosis = value; break;
-            case "Intimidate": Intimidate = value; break;
-            case "Jump": Jump = value; break;
-            case "LanguageOther1": LanguageOther1 = value; break;
-            case "LanguageOther2": LanguageOther2 = value; break;
-            case "LanguageOther3": LanguageOther3 = value; break;
-            case "LanguageOwn": LanguageOwn = value; break;
-            case "Law": Law = value; break;
-            case "LibraryUse": LibraryUse = value; break;
-            case "Listen": Listen = value; break;
-            case "Locksmith": Locksmith = value; break;
-            case "MechanicalRepair": MechanicalRepair = value; break;
-            case "Medicine": Medicine = value; break;
-            case "NaturalWorld": NaturalWorld = value; break;
-            case "Navigate": Navigate = value; break;
-            case "Occult": Occult = value; break;
-            case "OperateHeavyMachinery": OperateHeavyMachinery = value; break;
-            case "Persuade": Persuade = value; break;
-            case "Pilot": Pilot = value; break;
-            case "Psychoanalysis": Psychoanalysis = value; break;
-            case "Psychology": Psychology = value; break;
-            case "ReadLips": ReadLips = value; break;
-            case "Ride": Ride = value; break;
-            case "Science": Science = value; break;
-            case "ScienceOther": ScienceOther = value; break;
-            case "ScienceOther2": ScienceOther2 = value; break;
-            case "SignLanguage": SignLanguage = value; break;
-            case "Deception": Deception = value; break;
-            case "SleightOfHand": SleightOfHand = value; break;
-            case "SPOT": SPOT = value; break;
-            case "Stealth": Stealth = value; break;
-            case "Survival": Survival = value; break;
-            case "Swim": Swim = value; break;
-            case "Throw": Throw = value; break;
-            case "Track": Track = value; break;
-            case "UncommonLanguage": UncommonLanguage = value; break;
-            case "Other1": Other1 = value; break;
-            case "Other2": Other2 = value; break;
-            case "Other3": Other3 = value; break;
+            case APP: APP = value; break;
+            case BONUS: BONUS = value; break;
+            case BRV: BRV = value; break;
+            case CON: CON = value; break;
+            case DEX: DEX = value; break;
+            case EDU: EDU = value; break;
+            case INT: INT = value; break;
+            case LUCK: LUCK = value; break;
+            case SENSE: SENSE = value; break;
+            case WILL: WILL = value; break;
+            case STATUS: STATUS = value; break;
+            case SAN: SAN = value; break;
+            case SIZ: SIZ = value; break;
+            case STR: STR = value; break;
+            case ARMOR: ARMOR = value; break;
+            case RES: RES = value; break;
+            case SPOT: SPOT = value; break;
+            case ACCOUNTING: Accounting = value; break;
+            case ANIMAL_HANDLING: AnimalHandling = value; break;
+            case ANTHROPOLOGY: Anthropology = value; break;
+            case APPRAISE: Appraise = value; break;
+            case ARCHEOLOGY: Archeology = value; break;
+            case ART_CRAFT: ArtCraft = value; break;
+            case ART_CRAFT_2: ArtCraft2 = value; break;
+            case ARTILLERY: Artillery = value; break;
+            case CHARM: Charm = value; break;
+            case CLIMB: Climb = value; break;
+            case COMPUTER_USE: ComputerUse = value; break;
+            case CREDIT_RATING: CreditRating = value; break;
+            case CTHULHU_MYTHOS: CthulhuMythos = value; break;
+            case DEMOLITIONS: Demolitions = value; break;
+            case DISGUISE: Disguise = value; break;
+            case DODGE: Dodge = value; break;
+            case DRIVE_AUTO: DriveAuto = value; break;
+            case ELECTRONICS: Electronics = value; break;
+            case ELECTRICAL_REPAIR: ElectricalRepair = value; break;
+            case FAST_TALK: FastTalk = value; break;
+            case FIGHTING_BRAWL: FightingBrawl = value; break;
+            case FIGHTING_OTHER: FightingOther = value; break;
+            case FIREARMS_HANDGUN: FirearmsHandgun = value; break;
+            case FIREARMS_OTHER: FirearmsOther = value; break;
+            case FIREARMS_RIFLE_SHOTGUN: FirearmsRifleShotgun = value; break;
+            case FIRST_AID: FirstAid = value; break;
+            case HISTORY: History = value; break;
+            case HYPNOSIS: Hypnosis = value; break;
+            case INTIMIDATE: Intimidate = value; break;
+            case JUMP: Jump = value; break;
+            case LANGUAGE_OTHER_1: LanguageOther1 = value; break;
+            case LANGUAGE_OTHER_2: LanguageOther2 = value; break;
+            case LANGUAGE_OTHER_3: LanguageOther3 = value; break;
+            case LANGUAGE_OWN: LanguageOwn = value; break;
+            case LAW: Law = value; break;
+            case LIBRARY_USE: LibraryUse = value; break;
+            case LISTEN: Listen = value; break;
+            case LOCKSMITH: Locksmith = value; break;
+            case MECHANICAL_REPAIR: MechanicalRepair = value; break;
+            case MEDICINE: Medicine = value; break;
+            case NATURAL_WORLD: NaturalWorld = value; break;
+            case NAVIGATE: Navigate = value; break;
+            case OCCULT: Occult = value; break;
+            case OPERATE_HEAVY_MACHINERY: OperateHeavyMachinery = value; break;
+            case PERSUADE: Persuade = value; break;
+            case PILOT: Pilot = value; break;
+            case PSYCHOANALYSIS: Psychoanalysis = value; break;
+            case PSYCHOLOGY: Psychology = value; break;
+            case READ_LIPS: ReadLips = value; break;
+            case RIDE: Ride = value; break;
+            case SCIENCE: Science = value; break;
+            case SCIENCE_OTHER: ScienceOther = value; break;
+            case SCIENCE_OTHER_2: ScienceOther2 = value; break;
+            case SIGN_LANGUAGE: SignLanguage = value; break;
+            case DECEPTION: Deception = value; break;
+            case SLEIGHT_OF_HAND: SleightOfHand = value; break;
+            case STEALTH: Stealth = value; break;
+            case SURVIVAL: Survival = value; break;
+            case SWIM: Swim = value; break;
+            case THROW: Throw = value; break;
+            case TRACK: Track = value; break;
+            case UNCOMMON_LANGUAGE: UncommonLanguage = value; break;
+            case OTHER_1: Other1 = value; break;
+            case OTHER_2: Other2 = value; break;
+            case OTHER_3: Other3 = value; break;
             default:
                 throw new IllegalArgumentException("Unknown skill: " + skill);
         }
     }
 
+    /**
+     * Characteristics and skills as a dense vector indexed by {@link SkillId#ordinal()}.
+     */
+    public int[] toSkillVector() {
+        int[] v = new int[SkillId.COUNT];
+        // Driven by the enum, a new or reordered SkillId can not shift the entries
+        for (int i = 0; i < v.length; i++) {
+            v[i] = getSkill(SkillId.byOrdinal(i));
+        }
+        return v;
+    }
+
+    /**
+     * Sets all characteristics and skills from a vector produced by {@link #toSkillVector()}.
+     */
+    public void applySkillVector(int[] v) {
+        if (v.length != SkillId.COUNT) {
+            throw new IllegalArgumentException("Skill vector must have " + SkillId.COUNT + " entries, got " + v.length);
+        }
+        for (int i = 0; i < v.length; i++) {
+            setSkill(SkillId.byOrdinal(i), v[i]);
+        }
+    }
+
+    private static SkillId resolveSkill(String skill) {
+        SkillId id = SkillId.fromName(skill);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown skill: " + skill);
+        }
+        return id;
+    }
+
     public void calculateMPAndHP () {
         this.setHP((this.getCON()+this.getSIZ())/10);
         this.setMP(this.getWILL()/5);
@@ -360,12 +432,102 @@ public class Player {
         }
     }
 
+    /**
+     * Fills the compact skills map from the int fields, tagged with SKILLS_FORMAT_VERSION.
+     * Called by PlayerService before an insert or update in compact mode only: a change of a
+     * transient int field alone does not make the entity dirty, so @PreUpdate would not run, and
+     * in the default mode the column is read-only, so the map would be built for nothing.
+     */
+    public void packSkills() {
+        int[] v = toSkillVector();
+        Map<String, Integer> packed = new LinkedHashMap<>();
+        packed.put(SKILLS_FORMAT_KEY, SKILLS_FORMAT_VERSION);
+        for (SkillId skill : SkillId.values()) {
+            packed.put(skill.getFieldName(), v[skill.ordinal()]);
+        }
+        skills = packed;
+    }
+
+    /**
+     * Sets the int fields from the compact skills map after a load; nothing to do when the
+     * skills are stored in their own columns. Skills missing from an older map start at 0.
+     */
+    @PostLoad
+    void unpackSkills() {
+        if (skills == null || skills.isEmpty()) {
+            return;
+        }
+        int[] v = new int[SkillId.COUNT];
+        for (SkillId skill : SkillId.values()) {
+            v[skill.ordinal()] = skills.getOrDefault(skill.getFieldName(), 0);
+        }
+        applySkillVector(v);
+    }
+
+    /*
+     * Narrative accessors keep the JSON shape of the sheet. Getters return null until the narrative
+     * is loaded (PlayerService.getPlayerById loads it), so lists and cost paths never fetch the prose;
+     * setters create the narrative on demand, only for non-null texts: an incoming sheet without any
+     * text (e.g. a list entry sent back) has no narrative and leaves the stored one unchanged.
+     */
+    private String narrativeValue(Function<PlayerNarrative, String> getter) {
+        return narrative != null && Hibernate.isInitialized(narrative) ? getter.apply(narrative) : null;
+    }
+
+    private void setNarrativeValue(BiConsumer<PlayerNarrative, String> setter, String value) {
+        if (value != null || narrative != null) {
+            setter.accept(editableNarrative(), value);
+        }
+    }
+
+    private PlayerNarrative editableNarrative() {
+        if (narrative == null) {
+            narrative = new PlayerNarrative();
+        }
+        return narrative;
+    }
+
+    public String getBagSurface() {return narrativeValue(PlayerNarrative::getBagSurface);}
+    public void setBagSurface(String bagSurface) {setNarrativeValue(PlayerNarrative::setBagSurface, bagSurface);}
+
+    public String getSignificantPeople() {return narrativeValue(PlayerNarrative::getSignificantPeople);}
+    public void setSignificantPeople(String significantPeople) {setNarrativeValue(PlayerNarrative::setSignificantPeople, significantPeople);}
+
+    public String getInjuriesScarsPhobiesManias() {return narrativeValue(PlayerNarrative::getInjuriesScarsPhobiesManias);}
+    public void setInjuriesScarsPhobiesManias(String injuriesScarsPhobiesManias) {setNarrativeValue(PlayerNarrative::setInjuriesScarsPhobiesManias, injuriesScarsPhobiesManias);}
+
+    public String getBagMiddle() {return narrativeValue(PlayerNarrative::getBagMiddle);}
+    public void setBagMiddle(String bagMiddle) {setNarrativeValue(PlayerNarrative::setBagMiddle, bagMiddle);}
+
+    public String getTreasuredPossesions() {return narrativeValue(PlayerNarrative::getTreasuredPossesions);}
+    public void setTreasuredPossesions(String treasuredPossesions) {setNarrativeValue(PlayerNarrative::setTreasuredPossesions, treasuredPossesions);}
+
+    public String getArcaneTomesSpellsArtifacts() {return narrativeValue(PlayerNarrative::getArcaneTomesSpellsArtifacts);}
+    public void setArcaneTomesSpellsArtifacts(String arcaneTomesSpellsArtifacts) {setNarrativeValue(PlayerNarrative::setArcaneTomesSpellsArtifacts, arcaneTomesSpellsArtifacts);}
+
+    public String getBagDeep() {return narrativeValue(PlayerNarrative::getBagDeep);}
+    public void setBagDeep(String bagDeep) {setNarrativeValue(PlayerNarrative::setBagDeep, bagDeep);}
+
+    public String getMeaningfulLocations() {return narrativeValue(PlayerNarrative::getMeaningfulLocations);}
+    public void setMeaningfulLocations(String meaningfulLocations) {setNarrativeValue(PlayerNarrative::setMeaningfulLocations, meaningfulLocations);}
+
+    public String getEncountersWithStrangeEntities() {return narrativeValue(PlayerNarrative::getEncountersWithStrangeEntities);}
+    public void setEncountersWithStrangeEntities(String encountersWithStrangeEntities) {setNarrativeValue(PlayerNarrative::setEncountersWithStrangeEntities, encountersWithStrangeEntities);}
+
+    /**
+     * Cacheable avatar address; the version parameter changes whenever the image does.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getAvatarUrl() {
+        return avatarHash != null ? "/players/" + id + "/avatar?v=" + avatarHash : null;
+    }
+
     public void setValuesFromAnother(Player other) {
         if (other == null) {
             throw new IllegalArgumentException("Player to copy from cannot be null");
         }
 
-        // --- Basics (ID + user intentionally excluded) ---
+        // --- Basics (ID, version + user intentionally excluded, avatarHash is set by AvatarService) ---
         this.avatar = other.getAvatar();
         this.player = other.getPlayer();
         this.name = other.getName();
@@ -373,16 +535,14 @@ public class Player {
         this.pronoun = other.getPronoun();
         this.occupation = other.getOccupation();
         this.residence = other.getResidence();
-        this.bagSurface = other.getBagSurface();
-        this.significantPeople = other.getSignificantPeople();
-        this.injuriesScarsPhobiesManias = other.getInjuriesScarsPhobiesManias();
-        this.bagMiddle = other.getBagMiddle();
-        this.treasuredPossesions = other.getTreasuredPossesions();
-        this.arcaneTomesSpellsArtifacts = other.getArcaneTomesSpellsArtifacts();
-        this.bagDeep = other.getBagDeep();
-        this.meaningfulLocations = other.getMeaningfulLocations();
-        this.encountersWithStrangeEntities = other.getEncountersWithStrangeEntities();
+        // A sheet without narrative texts leaves them unchanged, so stat edits do not rewrite the prose
+        if (other.narrative != null) {
+            editableNarrative().setValuesFromAnother(other.narrative);
+        }
         this.age = other.getAge();
+        if (other.getRulesetId() != null) {
+            this.rulesetId = other.getRulesetId();
+        }
 
         // --- Progress / derived-ish fields ---
         this.totalXP = other.getTotalXP();
@@ -394,34 +554,11 @@ public class Player {
         this.HP = other.getHP();
         this.MOVE = other.getMOVE();
 
-        // --- Characteristics copied generically ---
-        for (String c : CHARACTERISTICS) {
-            this.setSkill(c, other.getSkill(c));
-        }
-
-        // --- Skills (single source of truth) ---
-        for (String skill : SKILLS) {
-            this.setSkill(skill, other.getSkill(skill));
-        }
+        // --- Characteristics and skills (single source of truth: SkillId) ---
+        this.applySkillVector(other.toSkillVector());
 
         // İstersen türetilenleri her zaman yeniden hesapla (MP/HP, BUILD/DB gibi):
         this.calculateMPAndHP();
         this.calculateBuildAndDB();
     }
-
-        private static final String[] SKILLS = {
-            "Accounting","AnimalHandling","Anthropology","Appraise","Archeology","ArtCraft","ArtCraft2",
-            "Artillery","Charm","Climb","ComputerUse","CreditRating","CthulhuMythos","Demolitions",
-            "Disguise","Dodge","DriveAuto","Electronics","ElectricalRepair","FastTalk","FightingBrawl","FightingOther",
-            "FirearmsHandgun","FirearmsOther","FirearmsRifleShotgun","FirstAid","History","Hypnosis","Intimidate","Jump",
-            "LanguageOther1","LanguageOther2","LanguageOther3","LanguageOwn","Law","LibraryUse","Listen","Locksmith",
-            "MechanicalRepair","Medicine","NaturalWorld","Navigate","Occult","OperateHeavyMachinery","Persuade","Pilot",
-            "Psychoanalysis","Psychology","ReadLips","Ride","Science","ScienceOther","ScienceOther2","SignLanguage","Deception",
-            "SleightOfHand","Stealth","Survival","Swim","Throw","Track","UncommonLanguage","Other1","Other2","Other3"
-    };
-
-        private static final String[] CHARACTERISTICS = {
-            "APP","BONUS","BRV","CON","DEX","EDU","INT","LUCK","SENSE","WILL",
-            "STATUS","SAN","SIZ","STR","ARMOR","RES","SPOT"
-        };
 }
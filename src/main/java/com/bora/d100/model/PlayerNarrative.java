@@ -0,0 +1,64 @@
+package com.bora.d100.model;
+
+import org.hibernate.Length;
+import org.hibernate.annotations.DynamicUpdate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Backstory texts of a character, kept out of the player row.
+ * Player references it lazily, so cost and stat paths never read the prose;
+ * dynamic updates write only the texts that actually changed.
+ */
+@Entity
+@Table(name = "player_narrative")
+@DynamicUpdate
+@Data
+@NoArgsConstructor
+public class PlayerNarrative {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonIgnore
+    private Long id;
+
+    @Column(length = Length.LONG32)
+    private String bagSurface;
+    @Column(length = Length.LONG32)
+    private String significantPeople;
+    @Column(length = Length.LONG32)
+    private String injuriesScarsPhobiesManias;
+    @Column(length = Length.LONG32)
+    private String bagMiddle;
+    @Column(length = Length.LONG32)
+    private String treasuredPossesions;
+    @Column(length = Length.LONG32)
+    private String arcaneTomesSpellsArtifacts;
+    @Column(length = Length.LONG32)
+    private String bagDeep;
+    @Column(length = Length.LONG32)
+    private String meaningfulLocations;
+    @Column(length = Length.LONG32)
+    private String encountersWithStrangeEntities;
+
+    public void setValuesFromAnother(PlayerNarrative other) {
+        this.bagSurface = other.getBagSurface();
+        this.significantPeople = other.getSignificantPeople();
+        this.injuriesScarsPhobiesManias = other.getInjuriesScarsPhobiesManias();
+        this.bagMiddle = other.getBagMiddle();
+        this.treasuredPossesions = other.getTreasuredPossesions();
+        this.arcaneTomesSpellsArtifacts = other.getArcaneTomesSpellsArtifacts();
+        this.bagDeep = other.getBagDeep();
+        this.meaningfulLocations = other.getMeaningfulLocations();
+        this.encountersWithStrangeEntities = other.getEncountersWithStrangeEntities();
+    }
+}
@@ -0,0 +1,155 @@
+package com.bora.d100.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dense registry of every characteristic and skill of a Player.
+ *
+ * Each entry ties together the three names used across the code base:
+ * - fieldName: Player field / JSON property ("AnimalHandling", "CON")
+ * - specKey:   key in the RulesSpec base and cost maps ("Animal Handling", "STA")
+ * - sheetKey:  placeholder in the character sheet template ("ANIMAL_HANDLING", "STA")
+ *
+ * The ordinal is the index of the entry in {@link Player#toSkillVector()}, so cost
+ * calculation, copying and rendering can loop over an int[] instead of hashing names.
+ *
+ * The entries follow the Player fields, not the rules file: a spec can not add a field.
+ * RulesService checks every loaded spec against this registry and logs keys on either side
+ * that have no counterpart.
+ */
+public enum SkillId {
+
+    // Characteristics
+    APP("APP", "APP", "APP"),
+    BONUS("BONUS", "BONUS", "BONUS"),
+    BRV("BRV", "BRV", "BRV"),
+    CON("CON", "STA", "STA"),
+    DEX("DEX", "AGI", "AGI"),
+    EDU("EDU", "EDU", "EDU"),
+    INT("INT", "INT", "INT"),
+    LUCK("LUCK", "LUCK", "LUCK"),
+    SENSE("SENSE", "SENSE", "SENSE"),
+    WILL("WILL", "WILL", "WILL"),
+    STATUS("STATUS", "STATUS", "STATUS"),
+    SAN("SAN", "SAN", "SAN"),
+    SIZ("SIZ", "SIZ", "SIZ"),
+    STR("STR", "STR", "STR"),
+    ARMOR("ARMOR", "ARMOR", "ARMOR"),
+    RES("RES", "RES", "RES"),
+    SPOT("SPOT", "SPOT", "SPOT"),
+
+    // Skills
+    ACCOUNTING("Accounting", "Accounting", "ACCOUNTING"),
+    ANIMAL_HANDLING("AnimalHandling", "Animal Handling", "ANIMAL_HANDLING"),
+    ANTHROPOLOGY("Anthropology", "Anthropology", "ANTHROPOLOGY"),
+    APPRAISE("Appraise", "Appraise", "APPRAISE"),
+    ARCHEOLOGY("Archeology", "Archeology", "ARCHEOLOGY"),
+    ART_CRAFT("ArtCraft", "Art Craft", "ARTCRAFT"),
+    ART_CRAFT_2("ArtCraft2", "Art Craft 2", "ARTCRAFT2"),
+    ARTILLERY("Artillery", "Artillery", "ARTILLERY"),
+    CHARM("Charm", "Charm", "CHARM"),
+    CLIMB("Climb", "Climb", "CLIMB"),
+    COMPUTER_USE("ComputerUse", "Computer Use", "COMPUTER_USE"),
+    CREDIT_RATING("CreditRating", "Credit Rating", "CREDIT_RATING"),
+    CTHULHU_MYTHOS("CthulhuMythos", "Cthulhu Mythos", "CTHULHU_MYTHOS"),
+    DEMOLITIONS("Demolitions", "Demolitions", "DEMOLITIONS"),
+    DISGUISE("Disguise", "Disguise", "DISGUISE"),
+    DODGE("Dodge", "Dodge", "DODGE"),
+    DRIVE_AUTO("DriveAuto", "Drive Auto", "DRIVE_AUTO"),
+    ELECTRONICS("Electronics", "Electronics", "ELECTRONICS"),
+    ELECTRICAL_REPAIR("ElectricalRepair", "Electrical Repair", "ELECTRICAL_REPAIR"),
+    FAST_TALK("FastTalk", "Fast Talk", "FAST_TALK"),
+    FIGHTING_BRAWL("FightingBrawl", "Fighting Brawl", "FIGHTING_BRAWL"),
+    FIGHTING_OTHER("FightingOther", "Fighting Other", "FIGHTING_OTHER"),
+    FIREARMS_HANDGUN("FirearmsHandgun", "Firearms Handgun", "FIREARMS_HANDGUN"),
+    FIREARMS_OTHER("FirearmsOther", "Firearms Other", "FIREARMS_OTHER"),
+    FIREARMS_RIFLE_SHOTGUN("FirearmsRifleShotgun", "Firearms Rifle Shotgun", "FIREARMS_RIFLE_SHOTGUN"),
+    FIRST_AID("FirstAid", "First Aid", "FIRST_AID"),
+    HISTORY("History", "History", "HISTORY"),
+    HYPNOSIS("Hypnosis", "Hypnosis", "HYPNOSIS"),
+    INTIMIDATE("Intimidate", "Intimidate", "INTIMIDATE"),
+    JUMP("Jump", "Jump", "JUMP"),
+    LANGUAGE_OTHER_1("LanguageOther1", "Language Other 1", "LANG_OTHER1"),
+    LANGUAGE_OTHER_2("LanguageOther2", "Language Other 2", "LANG_OTHER2"),
+    LANGUAGE_OTHER_3("LanguageOther3", "Language Other 3", "LANG_OTHER3"),
+    LANGUAGE_OWN("LanguageOwn", "Language Own", "LANG_OWN"),
+    LAW("Law", "Law", "LAW"),
+    LIBRARY_USE("LibraryUse", "Library Use", "LIBRARY_USE"),
+    LISTEN("Listen", "Listen", "LISTEN"),
+    LOCKSMITH("Locksmith", "Locksmith", "LOCKSMITH"),
+    MECHANICAL_REPAIR("MechanicalRepair", "Mechanical Repair", "MECH_REPAIR"),
+    MEDICINE("Medicine", "Medicine", "MEDICINE"),
+    NATURAL_WORLD("NaturalWorld", "Natural World", "NATURAL_WORLD"),
+    NAVIGATE("Navigate", "Navigate", "NAVIGATE"),
+    OCCULT("Occult", "Occult", "OCCULT"),
+    OPERATE_HEAVY_MACHINERY("OperateHeavyMachinery", "Operate Heavy Machinery", "OPERATE_HEAVY_MACHINERY"),
+    PERSUADE("Persuade", "Persuade", "PERSUADE"),
+    PILOT("Pilot", "Pilot", "PILOT"),
+    PSYCHOANALYSIS("Psychoanalysis", "Psychoanalysis", "PSYCHOANALYSIS"),
+    PSYCHOLOGY("Psychology", "Psychology", "PSYCHOLOGY"),
+    READ_LIPS("ReadLips", "Read Lips", "READ_LIPS"),
+    RIDE("Ride", "Ride", "RIDE"),
+    SCIENCE("Science", "Science", "SCIENCE"),
+    SCIENCE_OTHER("ScienceOther", "Science Other", "SCIENCE_OTHER"),
+    SCIENCE_OTHER_2("ScienceOther2", "Science Other 2", "SCIENCE_OTHER2"),
+    SIGN_LANGUAGE("SignLanguage", "Sign Language", "SIGN_LANGUAGE"),
+    DECEPTION("Deception", "Deception", "DECEPTION"),
+    SLEIGHT_OF_HAND("SleightOfHand", "Sleight Of Hand", "SLEIGHT_OF_HAND"),
+    STEALTH("Stealth", "Stealth", "STEALTH"),
+    SURVIVAL("Survival", "Survival", "SURVIVAL"),
+    SWIM("Swim", "Swim", "SWIM"),
+    THROW("Throw", "Throw", "THROW"),
+    TRACK("Track", "Track", "TRACK"),
+    UNCOMMON_LANGUAGE("UncommonLanguage", "Uncommon Language", "UNCOMMON_LANGUAGE"),
+    OTHER_1("Other1", "Other1", "OTHER1"),
+    OTHER_2("Other2", "Other2", "OTHER2"),
+    OTHER_3("Other3", "Other3", "OTHER3");
+
+    public static final int COUNT = values().length;
+
+    private static final SkillId[] VALUES = values();
+    private static final Map<String, SkillId> BY_NAME = new HashMap<>();
+
+    static {
+        for (SkillId id : VALUES) {
+            BY_NAME.putIfAbsent(id.fieldName, id);
+            BY_NAME.putIfAbsent(id.specKey, id);
+            BY_NAME.putIfAbsent(id.sheetKey, id);
+        }
+    }
+
+    private final String fieldName;
+    private final String specKey;
+    private final String sheetKey;
+
+    SkillId(String fieldName, String specKey, String sheetKey) {
+        this.fieldName = fieldName;
+        this.specKey = specKey;
+        this.sheetKey = sheetKey;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public String getSpecKey() {
+        return specKey;
+    }
+
+    public String getSheetKey() {
+        return sheetKey;
+    }
+
+    public static SkillId byOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Resolves any of the three names (field, rules spec key or sheet key).
+     * Returns null for unknown names.
+     */
+    public static SkillId fromName(String name) {
+        return name == null ? null : BY_NAME.get(name);
+    }
+}
@@ -1,5 +1,6 @@
 package com.bora.d100.model;
 
+import com.bora.d100.service.UserCacheListener;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
@@ -12,6 +13,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserCacheListener.class)
 @NoArgsConstructor
 @AllArgsConstructor
 public class User
@@ -0,0 +1,8 @@
+package com.bora.d100.repository;
+
+import com.bora.d100.model.AvatarBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AvatarBlobRepository extends JpaRepository<AvatarBlob, String>
+{
+}
@@ -1,9 +1,44 @@
 package com.bora.d100.repository;
 
+import com.bora.d100.dto.PlayerSummaryDTO;
 import com.bora.d100.model.Player;
+import com.bora.d100.model.PlayerNarrative;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 public interface PlayerRepository extends JpaRepository<Player, Long>
 {
+    // Keyset paging for background jobs: the next page starts after the last seen id
+    List<Player> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    List<Player> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id, Limit limit);
+
+    // Roster page: list columns only, the LOB columns are never read
+    @Query("""
+            select new com.bora.d100.dto.PlayerSummaryDTO(p.id, p.name, p.occupation, p.level, p.usedXP,
+                   u.id, u.username, p.avatarHash)
+            from Player p left join p.user u
+            where p.id > :after
+              and (:namePattern is null or lower(p.name) like :namePattern)
+              and (:occupationPattern is null or lower(p.occupation) like :occupationPattern)
+              and (:userId is null or u.id = :userId)
+            order by p.id asc
+            """)
+    List<PlayerSummaryDTO> findSummaries(@Param("after") long after,
+                                         @Param("namePattern") String namePattern,
+                                         @Param("occupationPattern") String occupationPattern,
+                                         @Param("userId") Long userId,
+                                         Limit limit);
+
+    @Query("select p.avatarHash from Player p where p.id = :id")
+    Optional<String> findAvatarHashById(@Param("id") Long id);
+
+    @Query("select p.narrative from Player p where p.id = :id")
+    Optional<PlayerNarrative> findNarrativeById(@Param("id") Long id);
 }
@@ -0,0 +1,37 @@
+package com.bora.d100.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bora.d100.exception.AdminAccessDeniedException;
+
+/**
+ * Guard of the maintenance endpoints while the JWT filter and the role rules of SecurityConfig are
+ * switched off: the caller sends app.admin.token in the X-Admin-Token header. Without a configured
+ * token these endpoints are refused to everyone.
+ */
+@Component
+public class AdminAccess
+{
+    public static final String HEADER = "X-Admin-Token";
+
+    private final byte[] token;
+
+    public AdminAccess(@Value("${app.admin.token:}") String token)
+    {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void check(String presented)
+    {
+        // Constant-time comparison, the token cannot be guessed byte by byte from response times
+        if (token.length == 0 || presented == null
+                || !MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8)))
+        {
+            throw new AdminAccessDeniedException();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.bora.d100.security;
+
+import com.bora.d100.model.Role;
+
+/**
+ * Principal built from the claims of a verified token, without a database lookup.
+ * Handlers that need the full User load it through UserCache.
+ */
+public record AuthenticatedUser(Long id, String email, Role role)
+{
+}
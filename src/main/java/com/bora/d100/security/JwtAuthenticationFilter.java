@@ -2,11 +2,17 @@ package com.bora.d100.security;
 
 
 import java.io.IOException;
+import java.util.List;
 import java.util.logging.Logger;
 
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
-import com.bora.d100.repository.UserRepository;
+import com.bora.d100.model.Role;
+
+import io.jsonwebtoken.Claims;
 
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
@@ -21,12 +27,10 @@ public class JwtAuthenticationFilter implements Filter
     private static final Logger logger = Logger.getLogger(JwtAuthenticationFilter.class.getName());
     
     private final JwtUtils jwtUtils;
-    private final UserRepository userRepository;
 
-    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserRepository userRepository)
+    public JwtAuthenticationFilter(JwtUtils jwtUtils)
     {
         this.jwtUtils = jwtUtils;
-        this.userRepository = userRepository;
     }
 
     @Override
@@ -37,33 +41,57 @@ public class JwtAuthenticationFilter implements Filter
         String header = request.getHeader("Authorization");
         logger.info("JwtAuthenticationFilter: " + request.getMethod() + " " + request.getRequestURI() + " | Authorization: " + (header != null ? "present" : "missing"));
         // Temporarily skip JWT validation while frontend login is disabled
-        // if (header != null && header.startsWith("Bearer "))
-        // {
-        //     String token = header.substring(7);
-        //
-        //     if (jwtUtils.isValid(token))
-        //     {
-        //         String email = jwtUtils.getSubject(token);
-        //         User user = userRepository.findByEmail(email);
-        //
-        //         if (user != null)
-        //         {
-        //             // Build Spring Security authority from user's role
-        //             var authority = new SimpleGrantedAuthority("ROLE_" + user.getRole().name());
-        //
-        //             // Store authenticated user in Spring Security context
-        //             UsernamePasswordAuthenticationToken auth =
-        //                     new UsernamePasswordAuthenticationToken(
-        //                             user,
-        //                             null,
-        //                             List.of(authority)
-        //                     );
-        //
-        //             SecurityContextHolder.getContext().setAuthentication(auth);
-        //         }
-        //     }
-        // }
+        // authenticate(request);
 
         chain.doFilter(req, res);
     }
+
+    /**
+     * Builds the Authentication from the claims of a bearer token alone: id, email and role are
+     * signed into the token at login, so no user is loaded per request. A role change takes effect
+     * with the next token.
+     */
+    void authenticate(HttpServletRequest request)
+    {
+        String header = request.getHeader("Authorization");
+        if (header == null || !header.startsWith("Bearer "))
+        {
+            return;
+        }
+
+        Claims claims = jwtUtils.parseAndValidate(header.substring(7));
+        if (claims == null)
+        {
+            return;
+        }
+
+        Long userId = claims.get("userId", Long.class);
+        Role role = parseRole(claims.get("role", String.class));
+        if (userId == null || role == null)
+        {
+            return;
+        }
+
+        AuthenticatedUser user = new AuthenticatedUser(userId, claims.getSubject(), role);
+        // Build Spring Security authority from user's role
+        var authority = new SimpleGrantedAuthority("ROLE_" + user.role().name());
+
+        // Store authenticated user in Spring Security context
+        UsernamePasswordAuthenticationToken auth =
+                new UsernamePasswordAuthenticationToken(user, null, List.of(authority));
+
+        SecurityContextHolder.getContext().setAuthentication(auth);
+    }
+
+    private static Role parseRole(String role)
+    {
+        try
+        {
+            return role != null ? Role.valueOf(role) : null;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.bora.d100.security;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.MessageDigest;
@@ -7,30 +8,47 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 
+/**
+ * Issues and verifies the HMAC signed JWTs.
+ *
+ * The parser is built once (it is immutable and thread safe). Verified tokens are cached by the
+ * SHA-256 digest of the token until their exp, so a client sending the same bearer token on every
+ * request is verified once; the token itself is not kept in memory.
+ */
 @Component
 public class JwtUtils
 {
     private final Key key;
     private final long expiration ;
+    private final JwtParser parser;
+    private final int verifiedCacheSize;
+    private final ConcurrentHashMap<ByteBuffer, VerifiedToken> verified = new ConcurrentHashMap<>();
+
+    private record VerifiedToken(Claims claims, long expiresAt) {
+    }
 
     public JwtUtils(
             @Value("${app.jwt.secret}") String secret,
-            @Value("${app.jwt.expiration}") long expiration
+            @Value("${app.jwt.expiration}") long expiration,
+            @Value("${app.jwt.verified-cache-size:10000}") int verifiedCacheSize
     )
     {
         this.key = buildKey(secret);
         this.expiration = expiration;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedCacheSize = verifiedCacheSize;
     }
 
     private Key buildKey(String secret) {
@@ -75,30 +93,65 @@ public class JwtUtils
                 .compact();
     }
 
-    public boolean isValid(String token)
+    /**
+     * Verifies the signature and expiry of a token in one pass.
+     * @return the claims (shared with the cache, read only), or null if the token is invalid or expired
+     */
+    public Claims parseAndValidate(String token)
     {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        ByteBuffer digest = ByteBuffer.wrap(sha256(token.getBytes(StandardCharsets.UTF_8)));
+
+        VerifiedToken cached = verified.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                return cached.claims();
+            }
+            verified.remove(digest, cached);
+            return null;
+        }
+
+        Claims claims;
         try
         {
-            Date expiration = parse(token).getBody().getExpiration();
-            return expiration.after(new Date());
+            claims = parser.parseClaimsJws(token).getBody();
         }
         catch (JwtException | IllegalArgumentException e)
         {
-            return false;
+            return null;
         }
+        Date exp = claims.getExpiration();
+        // Tokens without exp are not accepted, they could never be revoked
+        if (exp == null || exp.getTime() <= now) {
+            return null;
+        }
+
+        if (verified.size() >= verifiedCacheSize) {
+            verified.values().removeIf(entry -> entry.expiresAt() <= now);
+        }
+        // Still full of live tokens: verify the rest without caching them
+        if (verified.size() < verifiedCacheSize) {
+            verified.put(digest, new VerifiedToken(claims, exp.getTime()));
+        }
+        return claims;
     }
 
-    public String getSubject(String token)
+    int cachedTokenCount()
     {
-        return parse(token).getBody().getSubject();
+        return verified.size();
     }
 
-    private Jws<Claims> parse(String token)
+    public boolean isValid(String token)
     {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token);
+        return parseAndValidate(token) != null;
+    }
+
+    public String getSubject(String token)
+    {
+        Claims claims = parseAndValidate(token);
+        return claims != null ? claims.getSubject() : null;
     }
 }
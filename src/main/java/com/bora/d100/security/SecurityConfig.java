@@ -1,5 +1,6 @@
 package com.bora.d100.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -19,10 +20,13 @@ public class SecurityConfig
         this.jwtFilter = jwtFilter;
     }
 
+    /**
+     * Raising the strength rehashes stored passwords at their next successful login.
+     */
     @Bean
-    public BCryptPasswordEncoder passwordEncoder()
+    public BCryptPasswordEncoder passwordEncoder(@Value("${app.auth.bcrypt-strength:10}") int strength)
     {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
@@ -34,6 +38,9 @@ public class SecurityConfig
             .authorizeHttpRequests(auth -> auth
                 // Temporarily allow everything while frontend login is disabled
                 // .requestMatchers("/auth/**").permitAll()
+                // Until then POST /api/rules/reload and /api/admin/** check the admin token themselves (AdminAccess)
+                // .requestMatchers(HttpMethod.POST, "/api/rules/reload").hasRole("ADMIN")
+                // .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 // .requestMatchers(HttpMethod.GET, "/players/**").permitAll()
                 // .requestMatchers("/players/**").hasAnyRole("USER", "ADMIN")
                 .anyRequest().permitAll()
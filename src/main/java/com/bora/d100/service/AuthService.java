@@ -10,42 +10,82 @@ import com.bora.d100.model.Role;
 import com.bora.d100.model.User;
 import com.bora.d100.repository.UserRepository;
 import com.bora.d100.security.JwtUtils;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
+import java.util.logging.Logger;
 
 @Service
 public class AuthService
 {
+    private static final Logger logger = Logger.getLogger(AuthService.class.getName());
+
     private final UserRepository userRepository;
     private final JwtUtils jwtUtils;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final LoginThrottle loginThrottle;
+    private final KnownEmails knownEmails;
     private final UserMapper userMapper;
 
-    public AuthService(UserRepository userRepository, JwtUtils jwtUtils, BCryptPasswordEncoder passwordEncoder, UserMapper userMapper)
+    public AuthService(UserRepository userRepository, JwtUtils jwtUtils, PasswordHasher passwordHasher,
+                       LoginThrottle loginThrottle, KnownEmails knownEmails, UserMapper userMapper)
     {
         this.userRepository = userRepository;
         this.jwtUtils = jwtUtils;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
+        this.loginThrottle = loginThrottle;
+        this.knownEmails = knownEmails;
         this.userMapper = userMapper;
     }
 
-    public void register(RegisterRequestDTO dto)
+    /**
+     * One insert for a new address: the unique constraint on email decides, also between
+     * concurrent registrations. Addresses the email filter may know are checked first, so taken
+     * ones fail before the password is hashed.
+     */
+    public void register(RegisterRequestDTO dto, String clientIp)
     {
-        if (userRepository.existsByEmail(dto.getEmail()))
+        loginThrottle.acquire(clientIp, null);
+
+        if (knownEmails.mightExist(dto.getEmail()) && userRepository.existsByEmail(dto.getEmail()))
         {
             throw new EmailAlreadyExistsException(dto.getEmail());
         }
 
         User user = userMapper.fromRegisterDto(dto);
-        user.setHashedPassword(passwordEncoder.encode(dto.getPassword()));
+        user.setHashedPassword(passwordHasher.encode(dto.getPassword()));
         user.setRole(Role.USER);
-        userRepository.save(user);
+        try
+        {
+            userRepository.save(user);
+        }
+        catch (DataIntegrityViolationException e)
+        {
+            // Only the lookup after a failed insert tells a duplicate from any other violation
+            if (userRepository.existsByEmail(dto.getEmail()))
+            {
+                throw new EmailAlreadyExistsException(dto.getEmail());
+            }
+            throw e;
+        }
+        knownEmails.add(dto.getEmail());
     }
 
-    public LoginResponseDTO login(LoginRequestDTO dto)
+    /**
+     * Live availability check of the signup form. Most addresses typed there are new and are
+     * answered by the email filter alone; the database is only asked when the filter may know one.
+     */
+    public boolean isEmailAvailable(String email)
     {
+        return !knownEmails.mightExist(email) || !userRepository.existsByEmail(email);
+    }
+
+    public LoginResponseDTO login(LoginRequestDTO dto, String clientIp)
+    {
+        // Before any lookup or hashing, so throttled attempts cost nothing
+        loginThrottle.acquire(clientIp, dto.getEmail());
+
         User user = userRepository.findByEmail(dto.getEmail());
 
         if (user == null)
@@ -53,10 +93,19 @@ public class AuthService
             throw new UserNotFoundException(dto.getEmail());
         }
 
-        if (!passwordEncoder.matches(dto.getPassword(), user.getHashedPassword()))
+        if (!passwordHasher.matches(dto.getPassword(), user.getHashedPassword()))
         {
             throw new IllegalArgumentException("Invalid email or password");
         }
+        loginThrottle.reset(dto.getEmail());
+
+        // The plain password is only known here: bring hashes of an older cost factor up to date
+        if (passwordHasher.needsRehash(user.getHashedPassword()))
+        {
+            user.setHashedPassword(passwordHasher.encode(dto.getPassword()));
+            userRepository.save(user);
+            logger.info("Password of user " + user.getId() + " rehashed with the current cost factor");
+        }
 
         String token = jwtUtils.generateToken(
                 user.getEmail(),
@@ -0,0 +1,135 @@
+package com.bora.d100.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.bora.d100.model.AvatarBlob;
+import com.bora.d100.model.Player;
+import com.bora.d100.repository.AvatarBlobRepository;
+import com.bora.d100.repository.PlayerRepository;
+
+/**
+ * Content-addressed avatar store.
+ *
+ * Clients still upload avatars as data URLs in Player.avatar; on save the image is decoded,
+ * stored once under its SHA-256 and only the hash stays on the player row. Routine saves
+ * without a new image no longer carry the image at all.
+ *
+ * Only PNG, JPEG, GIF and WebP are accepted, checked by their magic bytes. The images are served
+ * from the API origin, so a type a browser would run (SVG, HTML) must never get into the store.
+ */
+@Service
+public class AvatarService {
+
+    private static final Logger logger = Logger.getLogger(AvatarService.class.getName());
+
+    private static final Set<String> ALLOWED_TYPES = Set.of("image/png", "image/jpeg", "image/gif", "image/webp");
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+    private final AvatarBlobRepository avatarBlobRepository;
+    private final PlayerRepository playerRepository;
+
+    public AvatarService(AvatarBlobRepository avatarBlobRepository, PlayerRepository playerRepository) {
+        this.avatarBlobRepository = avatarBlobRepository;
+        this.playerRepository = playerRepository;
+    }
+
+    /**
+     * Moves an uploaded avatar into the store.
+     * avatar: a data URL replaces the image, "" removes it, null (or anything else, e.g. the
+     * avatarUrl sent back by the client) keeps the current one.
+     */
+    public void apply(Player player) {
+        String avatar = player.getAvatar();
+        if (avatar != null) {
+            if (avatar.isEmpty()) {
+                player.setAvatarHash(null);
+            } else if (avatar.startsWith("data:")) {
+                player.setAvatarHash(store(avatar));
+            }
+        }
+        player.setAvatar(null);
+    }
+
+    /**
+     * Stores a data URL (data:image/png;base64,...) and returns its content hash.
+     */
+    public String store(String dataUrl) {
+        int comma = dataUrl.indexOf(',');
+        if (!dataUrl.startsWith("data:") || comma < 0 || !dataUrl.substring(0, comma).endsWith(";base64")) {
+            throw new IllegalArgumentException("Avatar must be a base64 data URL");
+        }
+        String declaredType = dataUrl.substring("data:".length(), comma - ";base64".length());
+        // Only raster images are served back, anything else (e.g. text/html, image/svg+xml) could be used for XSS
+        if (!ALLOWED_TYPES.contains(declaredType)) {
+            throw new IllegalArgumentException("Avatar must be a PNG, JPEG, GIF or WebP image, got " + declaredType);
+        }
+        byte[] data = Base64.getMimeDecoder().decode(dataUrl.substring(comma + 1));
+        // The stored type comes from the content, never from the client
+        String contentType = sniffImageType(data);
+        if (contentType == null) {
+            throw new IllegalArgumentException("Avatar content is not a PNG, JPEG, GIF or WebP image");
+        }
+        String hash = ContentHash.sha256Hex(data, 32);
+
+        if (!avatarBlobRepository.existsById(hash)) {
+            try {
+                avatarBlobRepository.save(new AvatarBlob(hash, contentType, data));
+                logger.info("Stored avatar " + hash + " (" + data.length + " bytes)");
+            } catch (DataIntegrityViolationException e) {
+                // Same image stored concurrently, the existing blob is identical
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * A stored avatar, unless its type is not one we serve (blobs stored before the type check).
+     */
+    public Optional<AvatarBlob> find(String hash) {
+        return avatarBlobRepository.findById(hash).filter(blob -> ALLOWED_TYPES.contains(blob.getContentType()));
+    }
+
+    /**
+     * Content type from the magic bytes of an image, null for anything but PNG, JPEG, GIF and WebP.
+     */
+    static String sniffImageType(byte[] data) {
+        if (startsWith(data, 0, PNG)) {
+            return "image/png";
+        }
+        if (startsWith(data, 0, JPEG)) {
+            return "image/jpeg";
+        }
+        if (startsWith(data, 0, ascii("GIF87a")) || startsWith(data, 0, ascii("GIF89a"))) {
+            return "image/gif";
+        }
+        if (startsWith(data, 0, ascii("RIFF")) && startsWith(data, 8, ascii("WEBP"))) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+        return data.length >= offset + prefix.length
+                && Arrays.equals(data, offset, offset + prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Current avatar hash of a character without loading the character.
+     */
+    public Optional<String> getAvatarHash(Long playerId) {
+        return playerRepository.findAvatarHashById(playerId);
+    }
+}
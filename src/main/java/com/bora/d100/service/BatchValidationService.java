@@ -0,0 +1,164 @@
+package com.bora.d100.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.bora.d100.dto.BatchValidationResultDTO;
+import com.bora.d100.exception.RulesetNotFoundException;
+import com.bora.d100.model.Player;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Validates many character sheets in one request.
+ *
+ * The input (JSON array or NDJSON) is read incrementally, costed in chunks on the
+ * xpValidationExecutor and written back as NDJSON in input order. At most
+ * maxChunksInFlight chunks are held in memory, whatever the size of the input.
+ */
+@Service
+public class BatchValidationService {
+
+    private static final Logger logger = Logger.getLogger(BatchValidationService.class.getName());
+
+    private static final int CHUNK_SIZE = 256;
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final CostServiceByUsage costServiceByUsage;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+    private final int maxChunksInFlight;
+
+    // Results of one chunk, with its position for error lines if costing the chunk fails
+    private record PendingChunk(Future<List<BatchValidationResultDTO>> results, long firstIndex, int size) {
+    }
+
+    public BatchValidationService(CostServiceByUsage costServiceByUsage,
+                                  @Qualifier("xpValidationExecutor") ExecutorService executor,
+                                  ObjectMapper objectMapper) {
+        this.costServiceByUsage = costServiceByUsage;
+        this.executor = executor;
+        this.objectMapper = objectMapper;
+        this.maxChunksInFlight = Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    public void validate(InputStream in, OutputStream out) throws IOException {
+        Deque<PendingChunk> inFlight = new ArrayDeque<>();
+        List<Player> chunk = new ArrayList<>(CHUNK_SIZE);
+        long index = 0;
+        String parseError = null;
+
+        try (MappingIterator<Player> players = objectMapper.readerFor(Player.class).readValues(in)) {
+            while (players.hasNextValue()) {
+                chunk.add(players.nextValue());
+                if (chunk.size() == CHUNK_SIZE) {
+                    inFlight.add(submit(chunk, index));
+                    index += chunk.size();
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    if (inFlight.size() >= maxChunksInFlight) {
+                        write(inFlight.poll(), out);
+                    }
+                }
+            }
+        } catch (JacksonException e) {
+            // Everything read so far is still reported, followed by the parse error
+            parseError = e.getOriginalMessage();
+        }
+
+        if (!chunk.isEmpty()) {
+            inFlight.add(submit(chunk, index));
+            index += chunk.size();
+        }
+        drain(inFlight, out);
+
+        if (parseError != null) {
+            BatchValidationResultDTO error = new BatchValidationResultDTO();
+            error.setIndex(index);
+            error.setError("Invalid character sheet: " + parseError);
+            writeLine(error, out);
+            out.flush();
+            logger.warning("Batch validation stopped at sheet " + index + ": " + parseError);
+            return;
+        }
+        logger.info("Batch validation finished: " + index + " sheets");
+    }
+
+    private PendingChunk submit(List<Player> chunk, long firstIndex) {
+        return new PendingChunk(executor.submit(() -> {
+            List<BatchValidationResultDTO> results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                Player player = chunk.get(i);
+
+                BatchValidationResultDTO result = new BatchValidationResultDTO();
+                result.setIndex(firstIndex + i);
+                result.setPlayerId(player.getId());
+                result.setName(player.getName());
+                result.setReportedUsedXP(player.getUsedXP());
+                try {
+                    int expected = costServiceByUsage.calculateUsedXP(player);
+                    result.setValid(expected == player.getUsedXP());
+                    result.setExpectedUsedXP(expected);
+                } catch (RulesetNotFoundException e) {
+                    result.setError(e.getMessage());
+                } catch (RuntimeException e) {
+                    // One broken sheet must not cost the lines of the others
+                    logger.warning("Batch validation of sheet " + result.getIndex() + " failed: " + e);
+                    result.setError("Validation failed: " + e.getMessage());
+                }
+                results.add(result);
+            }
+            return results;
+        }), firstIndex, chunk.size());
+    }
+
+    private void drain(Deque<PendingChunk> inFlight, OutputStream out) throws IOException {
+        while (!inFlight.isEmpty()) {
+            write(inFlight.poll(), out);
+        }
+        out.flush();
+    }
+
+    private void write(PendingChunk chunk, OutputStream out) throws IOException {
+        List<BatchValidationResultDTO> results;
+        try {
+            results = chunk.results().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch validation interrupted", e);
+        } catch (ExecutionException e) {
+            // Lines of earlier chunks are already sent, so the failure is reported in the stream
+            logger.severe("Batch validation of sheets " + chunk.firstIndex() + ".." + (chunk.firstIndex() + chunk.size() - 1)
+                    + " failed: " + e.getCause());
+            results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                BatchValidationResultDTO error = new BatchValidationResultDTO();
+                error.setIndex(chunk.firstIndex() + i);
+                error.setError("Validation failed: " + e.getCause());
+                results.add(error);
+            }
+        }
+        for (BatchValidationResultDTO result : results) {
+            writeLine(result, out);
+        }
+        out.flush();
+    }
+
+    private void writeLine(BatchValidationResultDTO result, OutputStream out) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write(NEWLINE);
+    }
+}
@@ -0,0 +1,58 @@
+package com.bora.d100.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of compiled rules, keyed by rules version (content hash).
+ * Compilation happens outside the lock; if two threads miss at once the first result wins.
+ * Looked up on every request, so guarded by a ReentrantLock like SheetCache: a contended monitor
+ * would pin virtual request threads to their carrier.
+ */
+class CompiledRulesCache {
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, RulesSnapshot> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    CompiledRulesCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RulesSnapshot> eldest) {
+                return size() > CompiledRulesCache.this.maxEntries;
+            }
+        };
+    }
+
+    RulesSnapshot get(String version, Supplier<RulesSnapshot> compiler) {
+        lock.lock();
+        try {
+            RulesSnapshot cached = entries.get(version);
+            if (cached != null) {
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+        RulesSnapshot compiled = compiler.get();
+        lock.lock();
+        try {
+            RulesSnapshot raced = entries.putIfAbsent(version, compiled);
+            return raced != null ? raced : compiled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.bora.d100.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 content hashes used as versions, ETags and store keys.
+ */
+final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    /**
+     * Hex of the first prefixBytes bytes of the SHA-256 digest (32 for the full digest).
+     */
+    static String sha256Hex(byte[] data, int prefixBytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, Math.min(prefixBytes, digest.length));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.bora.d100.service;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.bora.d100.dto.RulesSpec;
+import com.bora.d100.dto.XPPreviewDTO;
 import com.bora.d100.exception.XPCalculationMismatchException;
 import com.bora.d100.model.Player;
+import com.bora.d100.model.SkillId;
 
 /**
  * Cost calculation service based on cost rules.
@@ -20,9 +26,13 @@ public class CostServiceByUsage {
     private static final Logger logger = Logger.getLogger(CostServiceByUsage.class.getName());
 
     private final RulesService rulesService;
+    private final int fullRecalculationInterval;
+    private final AtomicLong recalculations = new AtomicLong();
 
-    public CostServiceByUsage(RulesService rulesService) {
+    public CostServiceByUsage(RulesService rulesService,
+                              @Value("${app.xp.full-recalc-interval:20}") int fullRecalculationInterval) {
         this.rulesService = rulesService;
+        this.fullRecalculationInterval = fullRecalculationInterval;
     }
 
     /**
@@ -30,75 +40,10 @@ public class CostServiceByUsage {
      * 
      * currentValue'dan targetValue'ye gitmek için kaç puan harcaması gerekir.
      * Penalti sistemi multi-level threshold tabanlıdır: 40, 50, 60, 70, 80 seviyeleri 1.5x, 2x, 3x, 4x, 6x çarpan alır.
+     * Hesaplama RulesService tarafından derlenmiş kümülatif tablolardan tek bir çıkarma ile yapılır.
      */
     public int getCostBetween(String skill, int currentValue, int targetValue) {
-        int costPerPoint = rulesService.getCost(skill);
-        RulesSpec.PenaltyRules penalties = rulesService.getPenaltyRules();
-
-        // Hiç iyileştirme yoksa maliyet sıfır
-        if (targetValue <= currentValue || costPerPoint == 0) {
-            return 0;
-        }
-
-        double totalCost = 0;
-        int current = currentValue;
-
-        // Multi-level penalty calculation
-        // Calculate cost for each threshold segment
-        if (penalties != null && penalties.getThresholds() != null) {
-            java.util.List<Integer> thresholds = penalties.getThresholds();
-            java.util.List<Double> multipliers = penalties.getMultipliers();
-            
-            // Process each threshold level
-            for (int i = 0; i < thresholds.size(); i++) {
-                int threshold = thresholds.get(i);
-                double multiplier = multipliers.get(i);
-                
-                if (current >= threshold) {
-                    // Skip this threshold, already passed it
-                    continue;
-                }
-                
-                if (current < threshold && current < targetValue) {
-                    // Calculate cost from current to this threshold (or to target if target is before this threshold)
-                    Integer nextThresholdObj = (i + 1 < thresholds.size()) ? thresholds.get(i + 1) : null;
-                    int nextThreshold = (nextThresholdObj != null) ? nextThresholdObj : Integer.MAX_VALUE;
-                    int end = Math.min(targetValue, nextThreshold);
-                    
-                    if (current < threshold) {
-                        end = Math.min(end, threshold);
-                    }
-                    
-                    int diff = end - current;
-                    if (diff > 0) {
-                        if (current < threshold && end > threshold) {
-                            // Cost spans from before threshold to after - split it
-                            int diffBefore = threshold - current;
-                            totalCost += diffBefore * costPerPoint * 1.0; // Before threshold: 1x
-                            totalCost += (end - threshold) * costPerPoint * multiplier;
-                            current = end;
-                        } else if (end <= threshold) {
-                            // Entirely before threshold
-                            totalCost += diff * costPerPoint * 1.0;
-                            current = end;
-                        } else {
-                            // Entirely at or above threshold
-                            totalCost += diff * costPerPoint * multiplier;
-                            current = end;
-                        }
-                    }
-                }
-            }
-            
-            // Cost for anything above the last threshold
-            if (current < targetValue) {
-                double lastMultiplier = multipliers.get(multipliers.size() - 1);
-                int diff = targetValue - current;
-                totalCost += diff * costPerPoint * lastMultiplier;
-            }
-        }
-
-        return (int) Math.round(totalCost);
+        return rulesService.getCostTable().costBetween(skill, currentValue, targetValue);
     }
 
     /**
@@ -117,104 +62,93 @@ public class CostServiceByUsage {
      */
     public Player calculateXP(Player player) throws XPCalculationMismatchException {
         logger.info("Calculating XP for player " + player.getName() + " | Received UsedXP: " + player.getUsedXP());
-        // Characteristics
-        int APP = getCostBetween("APP", rulesService.getBaseValue("APP"), player.getAPP());
-        int BONUS = getCostBetween("BONUS", rulesService.getBaseValue("BONUS"), player.getBONUS());
-        int BRV = getCostBetween("BRV", rulesService.getBaseValue("BRV"), player.getBRV());
-        int CON = getCostBetween("STA", rulesService.getBaseValue("STA"), player.getCON());
-        int DEX = getCostBetween("AGI", rulesService.getBaseValue("AGI"), player.getDEX());
-        int EDU = getCostBetween("EDU", rulesService.getBaseValue("EDU"), player.getEDU());
-        int INT = getCostBetween("INT", rulesService.getBaseValue("INT"), player.getINT());
-        int LUCK = getCostBetween("LUCK", rulesService.getBaseValue("LUCK"), player.getLUCK());
-        int SENSE = getCostBetween("SENSE", rulesService.getBaseValue("SENSE"), player.getSENSE());
-        int WILL = getCostBetween("WILL", rulesService.getBaseValue("WILL"), player.getWILL());
-        int STATUS = getCostBetween("STATUS", rulesService.getBaseValue("STATUS"), player.getSTATUS());
-        int SAN = getCostBetween("SAN", rulesService.getBaseValue("SAN"), player.getSAN());
-        int SIZ = getCostBetween("SIZ", rulesService.getBaseValue("SIZ"), player.getSIZ());
-        int STR = getCostBetween("STR", rulesService.getBaseValue("STR"), player.getSTR());
-        int ARMOR = getCostBetween("ARMOR", rulesService.getBaseValue("ARMOR"), player.getARMOR());
-        int RES = getCostBetween("RES", rulesService.getBaseValue("RES"), player.getRES());
-
-        // Skills
-        int Accounting = getCostBetween("Accounting", rulesService.getBaseValue("Accounting"), player.getAccounting());
-        int AnimalHandling = getCostBetween("Animal Handling", rulesService.getBaseValue("Animal Handling"), player.getAnimalHandling());
-        int Anthropology = getCostBetween("Anthropology", rulesService.getBaseValue("Anthropology"), player.getAnthropology());
-        int Appraise = getCostBetween("Appraise", rulesService.getBaseValue("Appraise"), player.getAppraise());
-        int Archeology = getCostBetween("Archeology", rulesService.getBaseValue("Archeology"), player.getArcheology());
-        int ArtCraft = getCostBetween("Art Craft", rulesService.getBaseValue("Art Craft"), player.getArtCraft());
-        int ArtCraft2 = getCostBetween("Art Craft 2", rulesService.getBaseValue("Art Craft 2"), player.getArtCraft2());
-        int Artillery = getCostBetween("Artillery", rulesService.getBaseValue("Artillery"), player.getArtillery());
-        int Charm = getCostBetween("Charm", rulesService.getBaseValue("Charm"), player.getCharm());
-        int Climb = getCostBetween("Climb", rulesService.getBaseValue("Climb"), player.getClimb());
-        int ComputerUse = getCostBetween("Computer Use", rulesService.getBaseValue("Computer Use"), player.getComputerUse());
-        int CreditRating = getCostBetween("Credit Rating", rulesService.getBaseValue("Credit Rating"), player.getCreditRating());
-        int CthulhuMythos = getCostBetween("Cthulhu Mythos", rulesService.getBaseValue("Cthulhu Mythos"), player.getCthulhuMythos());
-        int Demolitions = getCostBetween("Demolitions", rulesService.getBaseValue("Demolitions"), player.getDemolitions());
-        int Disguise = getCostBetween("Disguise", rulesService.getBaseValue("Disguise"), player.getDisguise());
-        int Dodge = getCostBetween("Dodge", rulesService.getBaseValue("Dodge"), player.getDodge());
-        int DriveAuto = getCostBetween("Drive Auto", rulesService.getBaseValue("Drive Auto"), player.getDriveAuto());
-        int Electronics = getCostBetween("Electronics", rulesService.getBaseValue("Electronics"), player.getElectronics());
-        int ElectricalRepair = getCostBetween("Electrical Repair", rulesService.getBaseValue("Electrical Repair"), player.getElectricalRepair());
-        int FastTalk = getCostBetween("Fast Talk", rulesService.getBaseValue("Fast Talk"), player.getFastTalk());
-        int FightingBrawl = getCostBetween("Fighting Brawl", rulesService.getBaseValue("Fighting Brawl"), player.getFightingBrawl());
-        int FightingOther = getCostBetween("Fighting Other", rulesService.getBaseValue("Fighting Other"), player.getFightingOther());
-        int FirearmsHandgun = getCostBetween("Firearms Handgun", rulesService.getBaseValue("Firearms Handgun"), player.getFirearmsHandgun());
-        int FirearmsOther = getCostBetween("Firearms Other", rulesService.getBaseValue("Firearms Other"), player.getFirearmsOther());
-        int FirearmsRifle = getCostBetween("Firearms Rifle Shotgun", rulesService.getBaseValue("Firearms Rifle Shotgun"), player.getFirearmsRifleShotgun());
-        int FirstAid = getCostBetween("First Aid", rulesService.getBaseValue("First Aid"), player.getFirstAid());
-        int History = getCostBetween("History", rulesService.getBaseValue("History"), player.getHistory());
-        int Hypnosis = getCostBetween("Hypnosis", rulesService.getBaseValue("Hypnosis"), player.getHypnosis());
-        int Intimidate = getCostBetween("Intimidate", rulesService.getBaseValue("Intimidate"), player.getIntimidate());
-        int Jump = getCostBetween("Jump", rulesService.getBaseValue("Jump"), player.getJump());
-        int LanguageOther1 = getCostBetween("Language Other 1", rulesService.getBaseValue("Language Other 1"), player.getLanguageOther1());
-        int LanguageOther2 = getCostBetween("Language Other 2", rulesService.getBaseValue("Language Other 2"), player.getLanguageOther2());
-        int LanguageOther3 = getCostBetween("Language Other 3", rulesService.getBaseValue("Language Other 3"), player.getLanguageOther3());
-        int LanguageOwn = getCostBetween("Language Own", rulesService.getBaseValue("Language Own"), player.getLanguageOwn());
-        int Law = getCostBetween("Law", rulesService.getBaseValue("Law"), player.getLaw());
-        int LibraryUse = getCostBetween("Library Use", rulesService.getBaseValue("Library Use"), player.getLibraryUse());
-        int Listen = getCostBetween("Listen", rulesService.getBaseValue("Listen"), player.getListen());
-        int Locksmith = getCostBetween("Locksmith", rulesService.getBaseValue("Locksmith"), player.getLocksmith());
-        int MechanicalRepair = getCostBetween("Mechanical Repair", rulesService.getBaseValue("Mechanical Repair"), player.getMechanicalRepair());
-        int Medicine = getCostBetween("Medicine", rulesService.getBaseValue("Medicine"), player.getMedicine());
-        int NaturalWorld = getCostBetween("Natural World", rulesService.getBaseValue("Natural World"), player.getNaturalWorld());
-        int Navigate = getCostBetween("Navigate", rulesService.getBaseValue("Navigate"), player.getNavigate());
-        int Occult = getCostBetween("Occult", rulesService.getBaseValue("Occult"), player.getOccult());
-        int OperateHeavyMachinery = getCostBetween("Operate Heavy Machinery", rulesService.getBaseValue("Operate Heavy Machinery"), player.getOperateHeavyMachinery());
-        int Persuade = getCostBetween("Persuade", rulesService.getBaseValue("Persuade"), player.getPersuade());
-        int Pilot = getCostBetween("Pilot", rulesService.getBaseValue("Pilot"), player.getPilot());
-        int Psychoanalysis = getCostBetween("Psychoanalysis", rulesService.getBaseValue("Psychoanalysis"), player.getPsychoanalysis());
-        int Psychology = getCostBetween("Psychology", rulesService.getBaseValue("Psychology"), player.getPsychology());
-        int ReadLips = getCostBetween("Read Lips", rulesService.getBaseValue("Read Lips"), player.getReadLips());
-        int Ride = getCostBetween("Ride", rulesService.getBaseValue("Ride"), player.getRide());
-        int Science = getCostBetween("Science", rulesService.getBaseValue("Science"), player.getScience());
-        int ScienceOther = getCostBetween("Science Other", rulesService.getBaseValue("Science Other"), player.getScienceOther());
-        int ScienceOther2 = getCostBetween("Science Other 2", rulesService.getBaseValue("Science Other 2"), player.getScienceOther2());
-        int SignLanguage = getCostBetween("Sign Language", rulesService.getBaseValue("Sign Language"), player.getSignLanguage());
-        int Deception = getCostBetween("Deception", rulesService.getBaseValue("Deception"), player.getDeception());
-        int SleightOfHand = getCostBetween("Sleight Of Hand", rulesService.getBaseValue("Sleight Of Hand"), player.getSleightOfHand());
-        int SPOT = getCostBetween("SPOT", rulesService.getBaseValue("SPOT"), player.getSPOT());
-        int Stealth = getCostBetween("Stealth", rulesService.getBaseValue("Stealth"), player.getStealth());
-        int Survival = getCostBetween("Survival", rulesService.getBaseValue("Survival"), player.getSurvival());
-        int Swim = getCostBetween("Swim", rulesService.getBaseValue("Swim"), player.getSwim());
-        int ThrowSkill = getCostBetween("Throw", rulesService.getBaseValue("Throw"), player.getThrow());
-        int Track = getCostBetween("Track", rulesService.getBaseValue("Track"), player.getTrack());
-        int Other1 = getCostBetween("Other1", rulesService.getBaseValue("Other1"), player.getOther1());
-        int Other2 = getCostBetween("Other2", rulesService.getBaseValue("Other2"), player.getOther2());
-        int Other3 = getCostBetween("Other3", rulesService.getBaseValue("Other3"), player.getOther3());
-        int UncommonLanguage = getCostBetween("Uncommon Language", rulesService.getBaseValue("Uncommon Language"), player.getUncommonLanguage());
-
-        // TOPLAM - SPOT is a characteristic, not a skill
-        int totalCost =
-                APP + BONUS + BRV + CON + DEX + EDU + INT + LUCK + SENSE + WILL + STATUS + SAN + SIZ + STR + ARMOR + RES + SPOT +
-                    Accounting + AnimalHandling + Anthropology + Appraise + Archeology + ArtCraft + ArtCraft2 + Artillery + Charm + Climb +
-                    ComputerUse + CreditRating + CthulhuMythos + Demolitions + Disguise + Dodge + DriveAuto + Electronics + ElectricalRepair + FastTalk +
-                        FightingBrawl + FightingOther + FirearmsHandgun + FirearmsOther + FirearmsRifle +
-                    FirstAid + History + Hypnosis + Intimidate + Jump + LanguageOther1 + LanguageOther2 + LanguageOther3 +
-                    LanguageOwn + Law + LibraryUse + Listen + Locksmith + MechanicalRepair + Medicine +
-                        NaturalWorld + Navigate + Occult + OperateHeavyMachinery + Persuade + Pilot + Psychoanalysis + Psychology + ReadLips + Ride +
-                        Science + ScienceOther + ScienceOther2 + SignLanguage + Deception + SleightOfHand + Stealth + Survival +
-                        Swim + ThrowSkill + Track + UncommonLanguage + Other1 + Other2 + Other3;
+        // Tek bir kural snapshot'ı: hesaplama sırasında kurallar yeniden yüklense bile sonuç tutarlı kalır
+        RulesSnapshot rules = rulesService.getSnapshot(player.getRulesetId());
+        int totalCost = rules.getCostTable().totalCostFromBase(player.toSkillVector());
         
+        return applyTotalCost(player, totalCost, rules);
+    }
+
+    /**
+     * Player'ın özellik ve becerileri için harcanması gereken toplam XP (doğrulama yapmaz, Player'ı değiştirmez).
+     */
+    public int calculateUsedXP(Player player) {
+        // Characteristics and skills - SPOT is a characteristic, not a skill
+        // Dense SkillId vector: one table lookup per entry, no string hashing
+        return rulesService.getSnapshot(player.getRulesetId()).getCostTable().totalCostFromBase(player.toSkillVector());
+    }
+
+    /**
+     * Güncelleme için artımlı XP hesabı.
+     * Kayıtlı usedXP değerinden başlayıp sadece değişen özellik/becerilerin maliyet farkını ekler,
+     * böylece tek bir beceri değiştiğinde tüm beceriler yeniden hesaplanmaz.
+     * Her app.xp.full-recalc-interval güncellemede bir, kayıtlı değer başka bir kural versiyonuyla
+     * hesaplanmışsa ve artımlı sonuç frontend ile uyuşmadığında tam hesaplama (calculateXP) çalışır.
+     */
+    public Player recalculateXP(Player player, int[] previousSkills, int previousUsedXP, String previousRulesVersion) throws XPCalculationMismatchException {
+        RulesSnapshot rules = rulesService.getSnapshot(player.getRulesetId());
+        if (!rules.getVersion().equals(previousRulesVersion)
+                || fullRecalculationInterval <= 1 || recalculations.incrementAndGet() % fullRecalculationInterval == 0) {
+            return calculateXP(player);
+        }
+
+        CostTable costTable = rules.getCostTable();
+        int[] skills = player.toSkillVector();
+        int totalCost = previousUsedXP;
+        for (int i = 0; i < skills.length; i++) {
+            if (skills[i] != previousSkills[i]) {
+                SkillId skill = SkillId.byOrdinal(i);
+                totalCost += costTable.costFromBase(skill, skills[i]) - costTable.costFromBase(skill, previousSkills[i]);
+            }
+        }
+
+        if (player.getUsedXP() != totalCost) {
+            // Kayıtlı değer eskimiş olabilir, karar tam hesaplamanın
+            logger.info("Incremental XP differs for " + player.getName() + " (" + totalCost + "), verifying with full calculation");
+            return calculateXP(player);
+        }
+        return applyTotalCost(player, totalCost, rules);
+    }
+
+    /**
+     * Kaydetmeden ve exception fırlatmadan sunucunun hesabını döner (editörün canlı doğrulaması için).
+     * Maliyet tablosu, calculateBuildAndDB ve calculateMPAndHP çalışır; veritabanına dokunulmaz.
+     */
+    public XPPreviewDTO preview(Player player) {
+        RulesSnapshot rules = rulesService.getSnapshot(player.getRulesetId());
+        CostTable costTable = rules.getCostTable();
+        int[] skills = player.toSkillVector();
+
+        Map<String, Integer> costs = new LinkedHashMap<>();
+        int totalCost = 0;
+        for (SkillId skill : SkillId.values()) {
+            int cost = costTable.costFromBase(skill, skills[skill.ordinal()]);
+            costs.put(skill.getSpecKey(), cost);
+            totalCost += cost;
+        }
+
+        player.calculateBuildAndDB();
+        player.calculateMPAndHP();
+
+        XPPreviewDTO preview = new XPPreviewDTO();
+        preview.setPlayerId(player.getId());
+        preview.setValid(player.getUsedXP() == totalCost);
+        preview.setReportedUsedXP(player.getUsedXP());
+        preview.setUsedXP(totalCost);
+        preview.setTotalXP(player.getTotalXP());
+        preview.setRemainingXP(player.getTotalXP() - totalCost);
+        RulesSpec.LevelRules levelRules = rules.getSpec().getLevelRules();
+        preview.setLevel(levelRules != null ? levelRules.calculateLevel(totalCost) : player.getLevel());
+        preview.setBuild(player.getBuild());
+        preview.setDamageBonus(player.getDamageBonus());
+        preview.setHP(player.getHP());
+        preview.setMP(player.getMP());
+        preview.setCosts(costs);
+        preview.setRulesVersion(rules.getVersion());
+        return preview;
+    }
+
+    private Player applyTotalCost(Player player, int totalCost, RulesSnapshot rules) throws XPCalculationMismatchException {
         if(player.getUsedXP() != totalCost) {
             logger.warning("XP MISMATCH for " + player.getName() + " | Frontend: " + player.getUsedXP() + " | Backend calculated: " + totalCost);
             throw new XPCalculationMismatchException(totalCost, player.getUsedXP());
@@ -224,9 +158,10 @@ public class CostServiceByUsage {
         
         player.setUsedXP(totalCost);
         player.setRemainingXP(player.getTotalXP() - totalCost);
+        player.setRulesVersion(rules.getVersion());
         
         // Calculate and set player level based on used XP
-        RulesSpec.LevelRules levelRules = rulesService.getLevelRules();
+        RulesSpec.LevelRules levelRules = rules.getSpec().getLevelRules();
         if (levelRules != null) {
             int level = levelRules.calculateLevel(totalCost);
             player.setLevel(level);
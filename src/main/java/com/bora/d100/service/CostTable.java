@@ -0,0 +1,295 @@
+package com.bora.d100.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.bora.d100.dto.CostTablesDTO;
+import com.bora.d100.dto.RulesSpec;
+import com.bora.d100.model.SkillId;
+
+/**
+ * Compiled, immutable form of the cost and penalty rules of a {@link RulesSpec}.
+ *
+ * For every key of the cost map a cumulative table is built once:
+ * cumulative[v] = cost of going from 0 to v, stored in fixed point ticks (1/1024 XP).
+ * The cost between two values is then a single array subtraction followed by the
+ * same rounding the original penalty loop applies at the end.
+ *
+ * The tables of the Player's characteristics and skills are also laid out densely by
+ * {@link SkillId} ordinal, so a whole skill vector is costed without any hashing.
+ *
+ * Values outside of [0, maxValue] and specs whose multipliers can not be represented
+ * exactly in ticks are delegated to {@link #loopCost}, so results are always identical
+ * to the original loop.
+ */
+public final class CostTable {
+
+    static final int TICKS_PER_XP = 1024;
+    private static final long MAX_EXACT_TICKS = 1L << 52;
+
+    private final RulesSpec.PenaltyRules penaltyRules;
+    private final Map<String, Integer> costs;
+    private final Map<String, long[]> cumulative;
+    private final int maxValue;
+
+    // Dense views indexed by SkillId ordinal
+    private final long[][] tableBySkill = new long[SkillId.COUNT][];
+    private final int[] baseBySkill = new int[SkillId.COUNT];
+    private final int[] costBySkill = new int[SkillId.COUNT];
+
+    private CostTable(RulesSpec spec, Map<String, Integer> costs, Map<String, long[]> cumulative, int maxValue) {
+        this.penaltyRules = spec.getPenaltyRules();
+        this.costs = costs;
+        this.cumulative = cumulative;
+        this.maxValue = maxValue;
+
+        Map<String, Integer> base = spec.getBase() != null ? spec.getBase() : Map.of();
+        for (SkillId id : SkillId.values()) {
+            tableBySkill[id.ordinal()] = cumulative.get(id.getSpecKey());
+            baseBySkill[id.ordinal()] = base.getOrDefault(id.getSpecKey(), 0);
+            costBySkill[id.ordinal()] = costs.getOrDefault(id.getSpecKey(), 0);
+        }
+    }
+
+    /**
+     * Compiles the cost map of the given spec into cumulative tables covering 0..maxValue.
+     */
+    public static CostTable compile(RulesSpec spec, int maxValue) {
+        if (maxValue < 0) {
+            throw new IllegalArgumentException("maxValue must not be negative: " + maxValue);
+        }
+        Map<String, Integer> costs = spec.getCost() != null ? Map.copyOf(spec.getCost()) : Map.of();
+        Map<String, long[]> cumulative = new HashMap<>();
+
+        for (Map.Entry<String, Integer> entry : costs.entrySet()) {
+            long[] table = buildTable(entry.getValue(), spec.getPenaltyRules(), maxValue);
+            int base = spec.getBase() != null ? spec.getBase().getOrDefault(entry.getKey(), 0) : 0;
+            if (table != null && matchesLoop(table, entry.getValue(), spec.getPenaltyRules(), base, maxValue)) {
+                cumulative.put(entry.getKey(), table);
+            }
+        }
+        return new CostTable(spec, costs, Map.copyOf(cumulative), maxValue);
+    }
+
+    /**
+     * Cost of raising a characteristic or skill from currentValue to targetValue.
+     * Same contract as the original penalty loop: zero if there is no improvement or no cost.
+     */
+    public int costBetween(String skill, int currentValue, int targetValue) {
+        if (targetValue <= currentValue) {
+            return 0;
+        }
+        long[] table = cumulative.get(skill);
+        if (table == null || currentValue < 0 || targetValue > maxValue) {
+            return roundCost(loopCost(costs.getOrDefault(skill, 0), penaltyRules, currentValue, targetValue));
+        }
+        return ticksToXP(table[targetValue] - table[currentValue]);
+    }
+
+    /**
+     * Cost of raising a characteristic or skill from its base value to the given value.
+     */
+    public int costFromBase(SkillId skill, int value) {
+        return costBetween(skill, baseBySkill[skill.ordinal()], value);
+    }
+
+    /**
+     * Cost of raising a characteristic or skill between two values, by SkillId.
+     */
+    public int costBetween(SkillId skill, int currentValue, int targetValue) {
+        if (targetValue <= currentValue) {
+            return 0;
+        }
+        int i = skill.ordinal();
+        long[] table = tableBySkill[i];
+        if (table == null || currentValue < 0 || targetValue > maxValue) {
+            return roundCost(loopCost(costBySkill[i], penaltyRules, currentValue, targetValue));
+        }
+        return ticksToXP(table[targetValue] - table[currentValue]);
+    }
+
+    /**
+     * Inverse cost function: the highest value (at most limit) reachable from currentValue
+     * without spending more than budget. Costs only grow with the target value, so this is
+     * a binary search over the cumulative table.
+     */
+    public int maxReachable(SkillId skill, int currentValue, int budget, int limit) {
+        int low = currentValue;
+        int high = Math.max(currentValue, limit);
+        while (low < high) {
+            int mid = low + (high - low + 1) / 2;
+            if (costBetween(skill, currentValue, mid) <= budget) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Total cost of a skill vector (see Player#toSkillVector) from base values.
+     */
+    public int totalCostFromBase(int[] skillVector) {
+        long total = 0;
+        for (int i = 0; i < skillVector.length; i++) {
+            total += costFromBase(SkillId.byOrdinal(i), skillVector[i]);
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The cumulative tables for clients: base64 little-endian float64 arrays (ticks are below
+     * 2^52, so every value is exact), keys sorted.
+     */
+    public CostTablesDTO export(String rulesVersion) {
+        Map<String, String> tables = new TreeMap<>();
+        for (Map.Entry<String, long[]> entry : cumulative.entrySet()) {
+            long[] table = entry.getValue();
+            ByteBuffer bytes = ByteBuffer.allocate(table.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (long ticks : table) {
+                bytes.putDouble(ticks);
+            }
+            tables.put(entry.getKey(), Base64.getEncoder().encodeToString(bytes.array()));
+        }
+        List<String> uncompiled = costs.keySet().stream()
+                .filter(key -> !cumulative.containsKey(key))
+                .sorted()
+                .toList();
+        return new CostTablesDTO(rulesVersion, TICKS_PER_XP, maxValue, "float64le-base64", tables, uncompiled);
+    }
+
+    public int getBaseValue(SkillId skill) {
+        return baseBySkill[skill.ordinal()];
+    }
+
+    public int getMaxValue() {
+        return maxValue;
+    }
+
+    static int ticksToXP(long ticks) {
+        // Math.round semantics (half up) for non-negative values
+        return (int) ((ticks + TICKS_PER_XP / 2) / TICKS_PER_XP);
+    }
+
+    /**
+     * Builds the cumulative tick table, or returns null when a single step cost
+     * can not be represented exactly in ticks.
+     */
+    private static long[] buildTable(int costPerPoint, RulesSpec.PenaltyRules penalties, int maxValue) {
+        long[] table = new long[maxValue + 1];
+        for (int v = 0; v < maxValue; v++) {
+            double stepTicks = loopCost(costPerPoint, penalties, v, v + 1) * TICKS_PER_XP;
+            if (stepTicks != Math.rint(stepTicks)) {
+                return null;
+            }
+            table[v + 1] = table[v] + (long) stepTicks;
+            if (table[v + 1] > MAX_EXACT_TICKS) {
+                return null;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * The loop is only additive for ascending thresholds; double check every target
+     * reachable from the base value before trusting the table.
+     */
+    private static boolean matchesLoop(long[] table, int costPerPoint, RulesSpec.PenaltyRules penalties, int base, int maxValue) {
+        if (base < 0 || base > maxValue) {
+            return true;
+        }
+        for (int target = base + 1; target <= maxValue; target++) {
+            int expected = (int) Math.round(loopCost(costPerPoint, penalties, base, target));
+            if (ticksToXP(table[target] - table[base]) != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rounds a loop cost; costs beyond the int range (absurd target values) saturate instead of
+     * wrapping to negative values.
+     */
+    private static int roundCost(double cost) {
+        return (int) Math.min(Math.round(cost), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Original multi-level penalty loop, kept as the reference implementation.
+     * Products are taken in double, so large values can not overflow the int arithmetic.
+     * Returns the unrounded cost; callers round once at the end.
+     */
+    static double loopCost(int costPerPoint, RulesSpec.PenaltyRules penalties, int currentValue, int targetValue) {
+        // Hiç iyileştirme yoksa maliyet sıfır
+        if (targetValue <= currentValue || costPerPoint == 0) {
+            return 0;
+        }
+
+        double totalCost = 0;
+        int current = currentValue;
+
+        // Multi-level penalty calculation
+        // Calculate cost for each threshold segment
+        if (penalties != null && penalties.getThresholds() != null) {
+            List<Integer> thresholds = penalties.getThresholds();
+            List<Double> multipliers = penalties.getMultipliers();
+
+            // Process each threshold level
+            for (int i = 0; i < thresholds.size(); i++) {
+                int threshold = thresholds.get(i);
+                double multiplier = multipliers.get(i);
+
+                if (current >= threshold) {
+                    // Skip this threshold, already passed it
+                    continue;
+                }
+
+                if (current < threshold && current < targetValue) {
+                    // Calculate cost from current to this threshold (or to target if target is before this threshold)
+                    Integer nextThresholdObj = (i + 1 < thresholds.size()) ? thresholds.get(i + 1) : null;
+                    int nextThreshold = (nextThresholdObj != null) ? nextThresholdObj : Integer.MAX_VALUE;
+                    int end = Math.min(targetValue, nextThreshold);
+
+                    if (current < threshold) {
+                        end = Math.min(end, threshold);
+                    }
+
+                    long diff = (long) end - current;
+                    if (diff > 0) {
+                        if (current < threshold && end > threshold) {
+                            // Cost spans from before threshold to after - split it
+                            long diffBefore = (long) threshold - current;
+                            totalCost += diffBefore * (double) costPerPoint; // Before threshold: 1x
+                            totalCost += (end - threshold) * (double) costPerPoint * multiplier;
+                            current = end;
+                        } else if (end <= threshold) {
+                            // Entirely before threshold
+                            totalCost += diff * (double) costPerPoint;
+                            current = end;
+                        } else {
+                            // Entirely at or above threshold
+                            totalCost += diff * (double) costPerPoint * multiplier;
+                            current = end;
+                        }
+                    }
+                }
+            }
+
+            // Cost for anything above the last threshold
+            if (current < targetValue) {
+                double lastMultiplier = multipliers.get(multipliers.size() - 1);
+                long diff = (long) targetValue - current;
+                totalCost += diff * (double) costPerPoint * lastMultiplier;
+            }
+        }
+
+        return totalCost;
+    }
+}
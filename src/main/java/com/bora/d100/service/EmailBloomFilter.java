@@ -0,0 +1,65 @@
+package com.bora.d100.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of email addresses: mightContain is false only for addresses that were never added,
+ * true may be a false positive (about falsePositiveRate once expectedInsertions are added).
+ * Bits are set with CAS on an AtomicLongArray, so adds and lookups need no lock.
+ */
+final class EmailBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    EmailBloomFilter(int expectedInsertions, double falsePositiveRate) {
+        long m = (long) Math.ceil(-Math.max(1, expectedInsertions) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / Math.max(1, expectedInsertions) * Math.log(2)));
+    }
+
+    void add(String email) {
+        long h1 = hash(email);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                // Another bit of the same word was set meanwhile, retry
+            }
+        }
+    }
+
+    boolean mightContain(String email) {
+        long h1 = hash(email);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a over the UTF-8 bytes, then a second independent hash by mixing (double hashing)
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,60 @@
+package com.bora.d100.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body encoded once and served many times: the plain bytes, a gzip copy and
+ * their ETag (content hash of the plain bytes).
+ */
+public final class EncodedPayload {
+
+    private final byte[] identity;
+    private final byte[] gzip;
+    private final String eTag;
+
+    private EncodedPayload(byte[] identity, byte[] gzip, String eTag) {
+        this.identity = identity;
+        this.gzip = gzip;
+        this.eTag = eTag;
+    }
+
+    public static EncodedPayload of(byte[] identity) {
+        return new EncodedPayload(identity, gzip(identity), ContentHash.sha256Hex(identity, 16));
+    }
+
+    public byte[] getIdentity() {
+        return identity;
+    }
+
+    public byte[] getGzip() {
+        return gzip;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * The gzip copy is a different representation and gets its own ETag.
+     */
+    public String getGzipETag() {
+        return eTag + "-gzip";
+    }
+
+    int getSize() {
+        return identity.length + gzip.length;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,74 @@
+package com.bora.d100.service;
+
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory Bloom filter of the registered email addresses, loaded at startup and updated on
+ * every registration. Addresses are kept exactly as stored: users.email is unique case-sensitively
+ * and existsByEmail matches exactly, so the filter must not treat "Foo@x" and "foo@x" as one.
+ * "Definitely new" answers need no database; "maybe taken" ones are confirmed by the caller.
+ * Deleted users stay in the filter until the next restart, which only turns their address
+ * into a "maybe".
+ * <p>
+ * The filter is per instance: with several instances behind the load balancer, an address
+ * registered on another one is answered "definitely new" here until this instance restarts.
+ * Registration still fails on the unique email constraint, but the availability check of the
+ * signup form can wrongly report such an address as free.
+ */
+@Service
+public class KnownEmails implements ApplicationRunner
+{
+    private static final Logger logger = Logger.getLogger(KnownEmails.class.getName());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmailBloomFilter filter;
+    private volatile boolean ready;
+
+    public KnownEmails(JdbcTemplate jdbcTemplate,
+                       @Value("${app.auth.email-filter.expected:100000}") int expectedEmails,
+                       @Value("${app.auth.email-filter.false-positive-rate:0.01}") double falsePositiveRate)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.filter = new EmailBloomFilter(expectedEmails, falsePositiveRate);
+    }
+
+    @Override
+    public void run(ApplicationArguments args)
+    {
+        long[] count = {0};
+        try {
+            // Rows are streamed, the addresses are not kept
+            jdbcTemplate.query("select email from users", rs -> {
+                String email = rs.getString(1);
+                if (email != null) {
+                    add(email);
+                    count[0]++;
+                }
+            });
+            ready = true;
+            logger.info("Email filter loaded with " + count[0] + " addresses");
+        } catch (RuntimeException e) {
+            // Availability checks keep asking the database
+            logger.warning("Email filter could not be loaded: " + e);
+        }
+    }
+
+    public void add(String email)
+    {
+        filter.add(email);
+    }
+
+    /**
+     * False only if the address is certainly not registered; always true until the filter is loaded.
+     */
+    public boolean mightExist(String email)
+    {
+        return !ready || filter.mightContain(email);
+    }
+}
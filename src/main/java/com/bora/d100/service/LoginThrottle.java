@@ -0,0 +1,136 @@
+package com.bora.d100.service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.bora.d100.exception.TooManyRequestsException;
+
+/**
+ * Token buckets for sign-in attempts per client IP and per email address.
+ *
+ * Each bucket is a single AtomicLong (the "theoretical arrival time" of GCRA): an attempt moves it
+ * one interval forward and is allowed while it stays within burst intervals of now. Updates are a
+ * CAS, no locks. Every attempt takes a token from the email bucket and a successful login gives
+ * the burst back, so guessing passwords for one account slows down quickly while its owner is not
+ * locked out for long.
+ *
+ * At most app.auth.throttle.max-keys buckets are kept per kind. While a map is full, attempts for
+ * keys without a bucket are rejected, so spraying distinct addresses cannot switch the throttle
+ * off. Full buckets carry no state and are swept out, at most once per second, to make room.
+ */
+@Service
+public class LoginThrottle
+{
+    private final Limit ipLimit;
+    private final Limit emailLimit;
+    private final int maxKeys;
+    private final LongSupplier nanoTime;
+    private final Buckets ipBuckets = new Buckets();
+    private final Buckets emailBuckets = new Buckets();
+
+    private static final long SWEEP_INTERVAL_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private record Limit(int burst, long intervalNanos) {
+    }
+
+    private static final class Buckets {
+        final ConcurrentHashMap<String, AtomicLong> map = new ConcurrentHashMap<>();
+        // Earliest time of the next sweep, claimed by CAS so only one thread scans the map
+        final AtomicLong nextSweep = new AtomicLong(Long.MIN_VALUE);
+    }
+
+    public LoginThrottle(@Value("${app.auth.throttle.ip-burst:20}") int ipBurst,
+                         @Value("${app.auth.throttle.ip-interval:PT3S}") Duration ipInterval,
+                         @Value("${app.auth.throttle.email-burst:5}") int emailBurst,
+                         @Value("${app.auth.throttle.email-interval:PT1M}") Duration emailInterval,
+                         @Value("${app.auth.throttle.max-keys:100000}") int maxKeys)
+    {
+        this(ipBurst, ipInterval, emailBurst, emailInterval, maxKeys, System::nanoTime);
+    }
+
+    LoginThrottle(int ipBurst, Duration ipInterval, int emailBurst, Duration emailInterval, int maxKeys, LongSupplier nanoTime)
+    {
+        this.ipLimit = new Limit(ipBurst, ipInterval.toNanos());
+        this.emailLimit = new Limit(emailBurst, emailInterval.toNanos());
+        this.maxKeys = maxKeys;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Takes a token from the bucket of the client IP and, if given, of the email.
+     * @throws TooManyRequestsException if either bucket is empty
+     */
+    public void acquire(String clientIp, String email)
+    {
+        long now = nanoTime.getAsLong();
+        if (clientIp != null && !tryAcquire(ipBuckets, clientIp, ipLimit, now)) {
+            throw new TooManyRequestsException("Too many attempts from this address, please try again later");
+        }
+        if (email != null && !tryAcquire(emailBuckets, normalize(email), emailLimit, now)) {
+            throw new TooManyRequestsException("Too many attempts for this account, please try again later");
+        }
+    }
+
+    /**
+     * A successful login gives the account its full burst back.
+     */
+    public void reset(String email)
+    {
+        if (email != null) {
+            emailBuckets.map.remove(normalize(email));
+        }
+    }
+
+    private boolean tryAcquire(Buckets buckets, String key, Limit limit, long now)
+    {
+        AtomicLong bucket = buckets.map.get(key);
+        if (bucket == null) {
+            if (buckets.map.size() >= maxKeys) {
+                sweep(buckets, now);
+                if (buckets.map.size() >= maxKeys) {
+                    // Flooded with distinct keys: new keys wait until buckets refill
+                    return false;
+                }
+            }
+            bucket = buckets.map.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        long burstNanos = limit.burst() * limit.intervalNanos();
+        while (true) {
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + limit.intervalNanos();
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drops full buckets (they carry no state, dropping them loses nothing). The scan is over the
+     * whole map, so it runs at most once per SWEEP_INTERVAL_NANOS whatever the request rate.
+     */
+    private static void sweep(Buckets buckets, long now)
+    {
+        long due = buckets.nextSweep.get();
+        if (due != Long.MIN_VALUE && now - due < 0) {
+            return;
+        }
+        if (buckets.nextSweep.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) {
+            buckets.map.values().removeIf(arrival -> arrival.get() <= now);
+        }
+    }
+
+    private static String normalize(String email)
+    {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
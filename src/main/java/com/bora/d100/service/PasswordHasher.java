@@ -0,0 +1,71 @@
+package com.bora.d100.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import com.bora.d100.exception.TooManyRequestsException;
+
+/**
+ * Runs BCrypt on the bounded passwordHashExecutor instead of the request thread.
+ * A login storm can only use the hashing threads, the other endpoints keep their CPU; once the
+ * queue is full further requests are rejected right away with 429 instead of piling up.
+ */
+@Service
+public class PasswordHasher
+{
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final ExecutorService executor;
+
+    public PasswordHasher(BCryptPasswordEncoder passwordEncoder, @Qualifier("passwordHashExecutor") ExecutorService executor)
+    {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+    }
+
+    public String encode(String rawPassword)
+    {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String hashedPassword)
+    {
+        return run(() -> passwordEncoder.matches(rawPassword, hashedPassword));
+    }
+
+    /**
+     * True if the hash was made with a lower cost factor than the configured one.
+     */
+    public boolean needsRehash(String hashedPassword)
+    {
+        return passwordEncoder.upgradeEncoding(hashedPassword);
+    }
+
+    private <T> T run(Callable<T> task)
+    {
+        Future<T> result;
+        try {
+            result = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException("Too many sign-ins at the moment, please try again shortly");
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
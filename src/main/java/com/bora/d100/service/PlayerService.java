@@ -1,57 +1,150 @@
 package com.bora.d100.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.logging.Logger;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.bora.d100.dto.PlayerSummaryDTO;
+import com.bora.d100.dto.PlayerSummaryPageDTO;
 import com.bora.d100.exception.PlayerNotFoundException;
+import com.bora.d100.exception.PreconditionFailedException;
 import com.bora.d100.exception.XPCalculationMismatchException;
 import com.bora.d100.mapper.PlayerMapper;
 import com.bora.d100.model.Player;
+import com.bora.d100.model.PlayerNarrative;
+import com.bora.d100.model.SkillId;
 import com.bora.d100.model.User;
 import com.bora.d100.repository.PlayerRepository;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
 @Service
 public class PlayerService {
     
     private static final Logger logger = Logger.getLogger(PlayerService.class.getName());
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final PlayerRepository playerRepository;
     private final PlayerMapper playerMapper;
     private final CostService costService;
     private final CostServiceByUsage costServiceByUsage;
+    private final AvatarService avatarService;
+    private final SheetCache sheetCache;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+    private final boolean compactSkills;
+    private final String sheetUpdate;
 
-    public PlayerService(PlayerRepository playerRepository, PlayerMapper playerMapper, CostService costService, CostServiceByUsage costServiceByUsage)
+    public PlayerService(PlayerRepository playerRepository, PlayerMapper playerMapper, CostService costService, CostServiceByUsage costServiceByUsage,
+                         AvatarService avatarService, SheetCache sheetCache, EntityManager entityManager,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.skills.compact:false}") boolean compactSkills)
     {
         this.playerRepository = playerRepository;
         this.playerMapper = playerMapper;
         this.costService = costService;
         this.costServiceByUsage = costServiceByUsage;
+        this.avatarService = avatarService;
+        this.sheetCache = sheetCache;
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.compactSkills = compactSkills;
+        this.sheetUpdate = sheetUpdate();
     }
 
-    public List<Player> getAllPlayers()
+    /**
+     * Roster page with keyset pagination: rows with id > after, ordered by id.
+     * Unlike offset paging, the cost of a page does not grow with its position.
+     * name and occupation filter case-insensitively by substring, userId by owner.
+     */
+    public PlayerSummaryPageDTO getPlayerSummaries(Long after, Integer limit, String name, String occupation, Long userId)
     {
-        logger.info("PlayerService.getAllPlayers() - fetching all players from database");
-        List<Player> players = playerRepository.findAll()
-                .stream()
-                //.map(playerMapper::toResponseDto)
-                .toList();
-        logger.info("Found " + players.size() + " players");
-        return players;
+        int size = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        List<PlayerSummaryDTO> items = playerRepository.findSummaries(
+                after != null ? after : 0, containsPattern(name), containsPattern(occupation), userId, Limit.of(size));
+        Long nextCursor = items.size() == size ? items.get(items.size() - 1).getId() : null;
+        return new PlayerSummaryPageDTO(items, nextCursor);
+    }
+
+    private static String containsPattern(String value)
+    {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        // LIKE wildcards typed by the user are dropped, the filter is a plain substring match
+        String term = value.trim().toLowerCase(Locale.ROOT).replace("%", "").replace("_", "");
+        return "%" + term + "%";
     }
 
+    /**
+     * Full sheet including the narrative texts.
+     */
+    @Transactional(readOnly = true)
     public Player getPlayerById(Long playerId)
     {
         logger.info("PlayerService.getPlayerById(" + playerId + ")");
         Player player = playerRepository.findById(playerId)
                 .orElseThrow(() -> new PlayerNotFoundException(playerId));
+        Hibernate.initialize(player.getNarrative());
 
         return player;//;playerMapper.toResponseDto(player);
     }
 
 
 
+    /**
+     * Batch of an export: the given characters in the given order, unknown and repeated ids are skipped.
+     * The narrative texts are not loaded.
+     */
+    public List<Player> getPlayersByIds(List<Long> ids)
+    {
+        Map<Long, Player> byId = new HashMap<>();
+        for (Player player : playerRepository.findAllById(ids)) {
+            byId.put(player.getId(), player);
+        }
+        List<Player> players = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            // Removed once taken, so a repeated id does not return the character twice
+            Player player = byId.remove(id);
+            if (player != null) {
+                players.add(player);
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Keyset page of the characters of one user, ordered by id.
+     */
+    public List<Player> getPlayersOfUser(Long userId, long after, int limit)
+    {
+        return playerRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, after, Limit.of(limit));
+    }
+
+    /**
+     * Only the narrative texts of a character (empty if none were written yet).
+     */
+    public PlayerNarrative getNarrative(Long playerId)
+    {
+        logger.info("PlayerService.getNarrative(" + playerId + ")");
+        return playerRepository.findNarrativeById(playerId).orElseGet(PlayerNarrative::new);
+    }
+
     public Player/*ResponseDTO*/ createPlayer(Player/*RequestDTO dto,*/ player, User user) throws XPCalculationMismatchException {
         logger.info("PlayerService.createPlayer() - creating character: " + player.getName());
 //        Player player = playerMapper.toEntity(dto);
@@ -60,33 +153,246 @@ public class PlayerService {
         costServiceByUsage.calculateXP(player);
         player.calculateBuildAndDB();
         player.calculateMPAndHP();
+        if (compactSkills) {
+            player.packSkills();
+        }
+        avatarService.apply(player);
         Player saved = playerRepository.save(player);
         logger.info("Character created successfully with ID: " + saved.getId());
         return saved; //playerMapper.toResponseDto(saved);
     }
 
 
-    public Player updatePlayer(Long id, Player incoming, User user) {
+    /**
+     * expectedVersion: version from the If-Match header, null for an unconditional update.
+     * A conditional update is written with a single statement (see updateIfVersionMatches);
+     * an unconditional one loads and saves the character, a concurrent change in between is a conflict.
+     */
+    public Player updatePlayer(Long id, Player incoming, Long expectedVersion, User user) {
         logger.info("PlayerService.updatePlayer(" + id + ") - updating character");
+        if (expectedVersion != null) {
+            return updateIfVersionMatches(id, incoming, expectedVersion);
+        }
+        return updateLoaded(id, incoming, null);
+    }
+
+    private Player updateLoaded(Long id, Player incoming, Long expectedVersion) {
         Player existing = playerRepository.findById(id)
                 .orElseThrow(() -> new PlayerNotFoundException(id));
 
         /*if (!existing.getUser().getId().equals(user.getId())) {
             throw new RuntimeException("You cannot edit someone else's player");
         }*/
+        if (expectedVersion != null && existing.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException(id);
+        }
 
+        int[] previousSkills = existing.toSkillVector();
+        int previousUsedXP = existing.getUsedXP();
+        String previousRulesVersion = existing.getRulesVersion();
         existing.setValuesFromAnother(incoming);
 
 //        costService.calculateXP(existing);
-        costServiceByUsage.calculateXP(existing);
+        costServiceByUsage.recalculateXP(existing, previousSkills, previousUsedXP, previousRulesVersion);
         existing.calculateBuildAndDB();
         existing.calculateMPAndHP();
+        if (compactSkills) {
+            existing.packSkills();
+        }
+        avatarService.apply(existing);
 
-        Player result = playerRepository.save(existing);
+        Player result;
+        try {
+            result = playerRepository.save(existing);
+        } catch (OptimisticLockingFailureException e) {
+            throw new PreconditionFailedException(id);
+        }
+        sheetCache.invalidate(id);
         logger.info("Character " + id + " updated successfully");
         return result;
     }
 
+    /**
+     * Conditional update without reading the character: the sheet is costed on its own with a
+     * full calculation (the incremental one needs the stored skills) and written with one
+     * "update ... where id = ? and version = ?". The statement also asserts what the response
+     * relies on: a sheet without a ruleset was costed with the default rules, so the stored one
+     * must be unset too, and an unchanged avatar must be the one the client echoed in avatar
+     * (its avatarUrl), or none. A new image is stored in the same transaction, so a request
+     * that loses the version check leaves no blob behind.
+     * No row: 404 if the character is gone, 412 if another request changed it first, otherwise
+     * one of the assertions failed and the character is loaded and updated as without If-Match
+     * (still at the expected version).
+     */
+    private Player updateIfVersionMatches(Long id, Player incoming, long expectedVersion) {
+        try {
+            costServiceByUsage.calculateXP(incoming);
+        } catch (XPCalculationMismatchException e) {
+            if (incoming.getRulesetId() != null) {
+                throw e;
+            }
+            // Costed with the default rules, but the character may have its own: the stored ruleset decides
+            return updateLoaded(id, incoming, expectedVersion);
+        }
+        incoming.calculateBuildAndDB();
+        incoming.calculateMPAndHP();
+        if (compactSkills) {
+            incoming.packSkills();
+        }
+        String avatar = incoming.getAvatar();
+        boolean avatarChanged = avatar != null && (avatar.isEmpty() || avatar.startsWith("data:"));
+        String echoedHash = avatarChanged ? null : echoedAvatarHash(id, avatar);
+
+        StringBuilder jpql = new StringBuilder(sheetUpdate);
+        if (avatarChanged) {
+            jpql.append(", p.avatarHash = :avatarHash");
+        }
+        jpql.append(" where p.id = :id and p.version = :version");
+        if (incoming.getRulesetId() == null) {
+            jpql.append(" and p.rulesetId is null");
+        }
+        if (!avatarChanged) {
+            jpql.append(echoedHash != null ? " and p.avatarHash = :avatarHash" : " and p.avatarHash is null");
+        }
+
+        Integer updated = transaction.execute(status -> {
+            if (avatarChanged) {
+                avatarService.apply(incoming);
+            }
+            Query update = entityManager.createQuery(jpql.toString());
+            bindSheet(update, incoming);
+            if (avatarChanged || echoedHash != null) {
+                update.setParameter("avatarHash", avatarChanged ? incoming.getAvatarHash() : echoedHash);
+            }
+            int rows = update.setParameter("id", id).setParameter("version", expectedVersion).executeUpdate();
+            if (rows == 0) {
+                // Also undoes the blob of a new image
+                status.setRollbackOnly();
+            } else if (incoming.getNarrative() != null) {
+                updateNarrative(id, incoming.getNarrative());
+            }
+            return rows;
+        });
+        if (updated == null || updated == 0) {
+            List<?> versions = entityManager.createQuery("select p.version from Player p where p.id = :id")
+                    .setParameter("id", id)
+                    .getResultList();
+            if (versions.isEmpty()) {
+                throw new PlayerNotFoundException(id);
+            }
+            if (((Number) versions.get(0)).longValue() != expectedVersion) {
+                throw new PreconditionFailedException(id);
+            }
+            incoming.setAvatar(avatar);
+            return updateLoaded(id, incoming, expectedVersion);
+        }
+
+        sheetCache.invalidate(id);
+        incoming.setId(id);
+        incoming.setVersion(expectedVersion + 1);
+        if (!avatarChanged) {
+            incoming.setAvatarHash(echoedHash);
+        }
+        logger.info("Character " + id + " updated to version " + incoming.getVersion());
+        return incoming;
+    }
+
+    /**
+     * Hash of an avatarUrl of this character sent back in avatar (see Player#getAvatarUrl), else null.
+     */
+    private static String echoedAvatarHash(Long id, String avatar) {
+        String prefix = "/players/" + id + "/avatar?v=";
+        if (avatar == null || !avatar.startsWith(prefix) || avatar.length() == prefix.length()) {
+            return null;
+        }
+        return avatar.substring(prefix.length());
+    }
+
+    private void updateNarrative(Long id, PlayerNarrative narrative) {
+        int rows = entityManager.createQuery("""
+                        update PlayerNarrative n set n.bagSurface = :bagSurface, n.significantPeople = :significantPeople,
+                               n.injuriesScarsPhobiesManias = :injuriesScarsPhobiesManias, n.bagMiddle = :bagMiddle,
+                               n.treasuredPossesions = :treasuredPossesions, n.arcaneTomesSpellsArtifacts = :arcaneTomesSpellsArtifacts,
+                               n.bagDeep = :bagDeep, n.meaningfulLocations = :meaningfulLocations,
+                               n.encountersWithStrangeEntities = :encountersWithStrangeEntities
+                        where n.id = (select p.narrative.id from Player p where p.id = :id)
+                        """)
+                .setParameter("bagSurface", narrative.getBagSurface())
+                .setParameter("significantPeople", narrative.getSignificantPeople())
+                .setParameter("injuriesScarsPhobiesManias", narrative.getInjuriesScarsPhobiesManias())
+                .setParameter("bagMiddle", narrative.getBagMiddle())
+                .setParameter("treasuredPossesions", narrative.getTreasuredPossesions())
+                .setParameter("arcaneTomesSpellsArtifacts", narrative.getArcaneTomesSpellsArtifacts())
+                .setParameter("bagDeep", narrative.getBagDeep())
+                .setParameter("meaningfulLocations", narrative.getMeaningfulLocations())
+                .setParameter("encountersWithStrangeEntities", narrative.getEncountersWithStrangeEntities())
+                .setParameter("id", id)
+                .executeUpdate();
+        if (rows == 0) {
+            // First texts of this character
+            PlayerNarrative created = new PlayerNarrative();
+            created.setValuesFromAnother(narrative);
+            entityManager.persist(created);
+            entityManager.createQuery("update Player p set p.narrative = :narrative where p.id = :id")
+                    .setParameter("narrative", created)
+                    .setParameter("id", id)
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * The fields written by a sheet update, the same ones setValuesFromAnother and the XP
+     * calculation set on a loaded character; user, narrative and avatarHash stay as stored.
+     * The where clause is appended per request.
+     */
+    private String sheetUpdate() {
+        StringBuilder jpql = new StringBuilder("update Player p set p.version = p.version + 1");
+        for (String field : List.of("player", "name", "birthPlace", "pronoun", "occupation", "residence", "age",
+                "rulesVersion", "totalXP", "usedXP", "remainingXP", "level",
+                "Build", "damageBonus", "MP", "HP", "MOVE")) {
+            jpql.append(", p.").append(field).append(" = :").append(field);
+        }
+        // A sheet without a ruleset keeps the stored one, as setValuesFromAnother does
+        jpql.append(", p.rulesetId = coalesce(:rulesetId, p.rulesetId)");
+        if (compactSkills) {
+            jpql.append(", p.skills = :skills");
+        } else {
+            for (SkillId skill : SkillId.values()) {
+                jpql.append(", p.").append(skill.getFieldName()).append(" = :skill").append(skill.ordinal());
+            }
+        }
+        return jpql.toString();
+    }
+
+    private void bindSheet(Query update, Player player) {
+        update.setParameter("player", player.getPlayer())
+                .setParameter("name", player.getName())
+                .setParameter("birthPlace", player.getBirthPlace())
+                .setParameter("pronoun", player.getPronoun())
+                .setParameter("occupation", player.getOccupation())
+                .setParameter("residence", player.getResidence())
+                .setParameter("age", player.getAge())
+                .setParameter("rulesetId", player.getRulesetId())
+                .setParameter("rulesVersion", player.getRulesVersion())
+                .setParameter("totalXP", player.getTotalXP())
+                .setParameter("usedXP", player.getUsedXP())
+                .setParameter("remainingXP", player.getRemainingXP())
+                .setParameter("level", player.getLevel())
+                .setParameter("Build", player.getBuild())
+                .setParameter("damageBonus", player.getDamageBonus())
+                .setParameter("MP", player.getMP())
+                .setParameter("HP", player.getHP())
+                .setParameter("MOVE", player.getMOVE());
+        if (compactSkills) {
+            update.setParameter("skills", player.getSkills());
+        } else {
+            int[] skills = player.toSkillVector();
+            for (SkillId skill : SkillId.values()) {
+                update.setParameter("skill" + skill.ordinal(), skills[skill.ordinal()]);
+            }
+        }
+    }
+
 
     public void deletePlayer(Long playerId, User user) {
         logger.info("PlayerService.deletePlayer(" + playerId + ")");
@@ -99,6 +405,7 @@ public class PlayerService {
         }*/
 
         playerRepository.delete(player);
+        sheetCache.invalidate(playerId);
     }
 
 }
@@ -0,0 +1,241 @@
+package com.bora.d100.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bora.d100.dto.RecostStatusDTO;
+import com.bora.d100.dto.RulesSpec;
+import com.bora.d100.exception.RulesetNotFoundException;
+import com.bora.d100.model.Player;
+import com.bora.d100.repository.PlayerRepository;
+
+/**
+ * Admin job that re-costs every stored character after a rules change.
+ *
+ * One coordinator thread reads players in keyset pages (id > last id, app.xp.recost.page-size rows)
+ * and hands every page to the xpRecostExecutor. At most maxPagesInFlight pages are held in memory,
+ * so memory stays constant whatever the number of rows. Workers write changed usedXP, remainingXP,
+ * level and rulesVersion back with one JDBC batch update per page, bypassing the persistence context.
+ * A row is only written if its version is still the one read with the page: a character saved in
+ * between was costed by that save and is left alone (counted as skipped).
+ */
+@Service
+public class RecostService {
+
+    private static final Logger logger = Logger.getLogger(RecostService.class.getName());
+
+    private static final String UPDATE_SQL = "update player set usedxp = ?, remainingxp = ?, level = ?, rules_version = ?, version = version + 1 where id = ? and version = ?";
+    private static final int MAX_REPORTED_IDS = 100;
+
+    private final PlayerRepository playerRepository;
+    private final RulesService rulesService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService executor;
+    private final SheetCache sheetCache;
+    private final int pageSize;
+    private final int maxPagesInFlight;
+    // Not a monitor: a virtual thread holding one would be pinned to its carrier
+    private final ReentrantLock startLock = new ReentrantLock();
+    private volatile Job current;
+
+    public RecostService(PlayerRepository playerRepository,
+                         RulesService rulesService,
+                         JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         @Qualifier("xpRecostExecutor") ExecutorService executor,
+                         SheetCache sheetCache,
+                         @Value("${app.xp.recost.page-size:500}") int pageSize) {
+        this.playerRepository = playerRepository;
+        this.rulesService = rulesService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.executor = executor;
+        this.sheetCache = sheetCache;
+        this.pageSize = pageSize;
+        this.maxPagesInFlight = Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    /**
+     * Starts a new job unless one is already running.
+     * @return false if a job is still running
+     */
+    public boolean start() {
+        Job job;
+        startLock.lock();
+        try {
+            if (current != null && current.finishedAt == null) {
+                return false;
+            }
+            job = new Job(rulesService.getVersion());
+            current = job;
+        } finally {
+            startLock.unlock();
+        }
+
+        Thread coordinator = new Thread(() -> run(job), "xp-recost-coordinator");
+        coordinator.setDaemon(true);
+        coordinator.start();
+        logger.info("Re-costing all players with rules version " + job.rulesVersion);
+        return true;
+    }
+
+    public RecostStatusDTO getStatus() {
+        Job job = current;
+        if (job == null) {
+            RecostStatusDTO status = new RecostStatusDTO();
+            status.setState("IDLE");
+            return status;
+        }
+        return job.toStatus();
+    }
+
+    private void run(Job job) {
+        Deque<Future<?>> inFlight = new ArrayDeque<>();
+        try {
+            long lastId = 0;
+            while (true) {
+                long after = lastId;
+                // Read-only transaction per page: LOB columns need one, and the persistence context is dropped afterwards
+                List<Player> page = readOnlyTransaction.execute(status ->
+                        playerRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize)));
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+                inFlight.add(executor.submit(() -> recost(page, job)));
+                if (inFlight.size() >= maxPagesInFlight) {
+                    inFlight.poll().get();
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                inFlight.poll().get();
+            }
+            job.finish("COMPLETED", null);
+            logger.info("Re-costing finished: " + job.scanned.get() + " players scanned, " + job.updated.get() + " updated, "
+                    + job.skipped.get() + " skipped, " + job.negativeBudget.get() + " with negative budget, " + job.failed.get() + " failed");
+        } catch (RuntimeException | ExecutionException e) {
+            inFlight.forEach(future -> future.cancel(true));
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            job.finish("FAILED", cause.getMessage());
+            logger.severe("Re-costing failed after " + job.scanned.get() + " players: " + cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish("FAILED", "interrupted");
+        }
+    }
+
+    private void recost(List<Player> page, Job job) {
+        List<Object[]> updates = new ArrayList<>();
+        for (Player player : page) {
+            RulesSnapshot rules;
+            try {
+                rules = rulesService.getSnapshot(player.getRulesetId());
+            } catch (RulesetNotFoundException e) {
+                job.failed.incrementAndGet();
+                continue;
+            }
+
+            int usedXP = rules.getCostTable().totalCostFromBase(player.toSkillVector());
+            int remainingXP = player.getTotalXP() - usedXP;
+            RulesSpec.LevelRules levelRules = rules.getSpec().getLevelRules();
+            int level = levelRules != null ? levelRules.calculateLevel(usedXP) : player.getLevel();
+
+            if (remainingXP < 0) {
+                job.reportNegative(player.getId());
+            }
+            if (usedXP != player.getUsedXP() || remainingXP != player.getRemainingXP()
+                    || level != player.getLevel() || !rules.getVersion().equals(player.getRulesVersion())) {
+                updates.add(new Object[] {usedXP, remainingXP, level, rules.getVersion(), player.getId(), player.getVersion()});
+            }
+        }
+
+        int written = 0;
+        if (!updates.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    // Saved since the page was read, the save costed it with the current rules
+                    job.skipped.incrementAndGet();
+                    continue;
+                }
+                written++;
+                // Sheets show used/remaining XP
+                sheetCache.invalidate((Long) updates.get(i)[4]);
+            }
+        }
+        job.updated.addAndGet(written);
+        job.scanned.addAndGet(page.size());
+    }
+
+    private static final class Job {
+        private final String rulesVersion;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong negativeBudget = new AtomicLong();
+        private final ConcurrentLinkedQueue<Long> negativeBudgetIds = new ConcurrentLinkedQueue<>();
+        private volatile String state = "RUNNING";
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        Job(String rulesVersion) {
+            this.rulesVersion = rulesVersion;
+        }
+
+        void reportNegative(Long id) {
+            // The counter hands out one slot per report, so at most MAX_REPORTED_IDS ids are kept
+            if (negativeBudget.incrementAndGet() <= MAX_REPORTED_IDS) {
+                negativeBudgetIds.add(id);
+            }
+        }
+
+        void finish(String state, String error) {
+            this.error = error;
+            this.state = state;
+            this.finishedAt = Instant.now();
+        }
+
+        RecostStatusDTO toStatus() {
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            long millis = Math.max(1, Duration.between(startedAt, end).toMillis());
+
+            RecostStatusDTO status = new RecostStatusDTO();
+            status.setState(state);
+            status.setRulesVersion(rulesVersion);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            status.setScanned(scanned.get());
+            status.setUpdated(updated.get());
+            status.setFailed(failed.get());
+            status.setSkipped(skipped.get());
+            status.setNegativeBudget(negativeBudget.get());
+            status.setNegativeBudgetIds(List.copyOf(negativeBudgetIds));
+            status.setRowsPerSecond(scanned.get() * 1000.0 / millis);
+            status.setError(error);
+            return status;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.bora.d100.service;
+
+/**
+ * A rendered character sheet as served and cached: the encoded HTML (with its gzip copy and
+ * ETag) and the template version it was rendered with.
+ */
+public final class RenderedSheet {
+
+    private final EncodedPayload content;
+    private final String fileName;
+    private final String templateVersion;
+
+    RenderedSheet(EncodedPayload content, String fileName, String templateVersion) {
+        this.content = content;
+        this.fileName = fileName;
+        this.templateVersion = templateVersion;
+    }
+
+    public EncodedPayload getContent() {
+        return content;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getTemplateVersion() {
+        return templateVersion;
+    }
+
+    int getSize() {
+        return content.getSize();
+    }
+}
@@ -1,260 +1,327 @@
 package com.bora.d100.service;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Service;
 
 import com.bora.d100.dto.RulesSpec;
+import com.bora.d100.exception.RulesetNotFoundException;
+import com.bora.d100.model.SkillId;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import tools.jackson.databind.ObjectMapper;
 
 /**
  * Service to manage and serve the rules specification.
  * This is a single source of truth for all game rules.
+ *
+ * Rules are loaded from a JSON file (app.rules.location) into an immutable {@link RulesSnapshot}.
+ * Reloading (admin endpoint or file watcher) compiles a new snapshot and swaps the reference
+ * atomically; readers never lock and requests in flight keep the snapshot they started with.
+ *
+ * Besides the default rules, homebrew rulesets are read from app.rules.rulesets (one JSON file
+ * per ruleset, id = file name). Their sources are small and kept in memory; compiled cost
+ * engines are kept in a bounded LRU keyed by version, so heap stays bounded with many rulesets.
  */
 @Service
 public class RulesService {
-    
-    private final RulesSpec rulesSpec;
-    
-    public RulesService() {
-        this.rulesSpec = initializeRulesSpec();
+
+    private static final Logger logger = Logger.getLogger(RulesService.class.getName());
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static final String DEFAULT_RULESET = "default";
+
+    // Spec keys of the XP totals, not characteristics or skills
+    private static final Set<String> XP_KEYS = Set.of("totalXP", "usedXP", "remainingXP");
+
+    private final Resource location;
+    private final String rulesetsPattern;
+    private final int maxValue;
+    private final boolean watch;
+    private final AtomicReference<RulesSnapshot> snapshot = new AtomicReference<>();
+    private final CompiledRulesCache engines;
+    private volatile Map<String, RulesetSource> rulesets = Map.of();
+    private volatile WatchService watchService;
+
+    private record RulesetSource(RulesSpec spec, String version) {
+    }
+
+    public RulesService(@Value("${app.rules.location:classpath:rules/rules-spec.json}") Resource location,
+                        @Value("${app.rules.rulesets:classpath*:rules/rulesets/*.json}") String rulesetsPattern,
+                        @Value("${app.rules.max-value:300}") int maxValue,
+                        @Value("${app.rules.engine-cache-size:32}") int engineCacheSize,
+                        @Value("${app.rules.watch:false}") boolean watch) {
+        this.location = location;
+        this.rulesetsPattern = rulesetsPattern;
+        this.maxValue = maxValue;
+        this.watch = watch;
+        this.engines = new CompiledRulesCache(engineCacheSize);
+        RulesetSource defaults = load(location);
+        this.snapshot.set(new RulesSnapshot(defaults.spec(), maxValue, defaults.version()));
+        this.rulesets = loadRulesets();
+    }
+
+    /**
+     * Loads the rules sources again and swaps in the new snapshot.
+     * If the default source can not be read or is invalid, the current snapshot stays active.
+     */
+    public RulesSnapshot reload() {
+        RulesetSource defaults = load(location);
+        RulesSnapshot loaded = new RulesSnapshot(defaults.spec(), maxValue, defaults.version());
+        RulesSnapshot previous = snapshot.getAndSet(loaded);
+        rulesets = loadRulesets();
+        logger.info("Rules reloaded from " + location.getDescription() + " | version " + previous.getVersion() + " -> " + loaded.getVersion()
+                + " | " + rulesets.size() + " additional rulesets");
+        return loaded;
+    }
+
+    private RulesetSource load(Resource resource) {
+        byte[] source;
+        try (InputStream in = resource.getInputStream()) {
+            source = in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalStateException("Rules specification could not be read from " + resource.getDescription(), e);
+        }
+
+        RulesSpec spec = objectMapper.readValue(source, RulesSpec.class);
+        validate(spec);
+        return new RulesetSource(spec, ContentHash.sha256Hex(source, 8));
+    }
+
+    private Map<String, RulesetSource> loadRulesets() {
+        Resource[] resources;
+        try {
+            resources = new PathMatchingResourcePatternResolver().getResources(rulesetsPattern);
+        } catch (IOException e) {
+            logger.warning("Rulesets could not be listed from " + rulesetsPattern + ": " + e.getMessage());
+            return rulesets;
+        }
+
+        Map<String, RulesetSource> loaded = new HashMap<>();
+        for (Resource resource : resources) {
+            String fileName = resource.getFilename();
+            if (fileName == null || !fileName.endsWith(".json")) {
+                continue;
+            }
+            String id = fileName.substring(0, fileName.length() - ".json".length());
+            try {
+                loaded.put(id, load(resource));
+            } catch (RuntimeException e) {
+                // Keep serving the last good version of a broken ruleset
+                logger.warning("Ruleset " + id + " could not be loaded: " + e.getMessage());
+                if (rulesets.containsKey(id)) {
+                    loaded.put(id, rulesets.get(id));
+                }
+            }
+        }
+        loaded.remove(DEFAULT_RULESET);
+        return Map.copyOf(loaded);
+    }
+
+    private void validate(RulesSpec spec) {
+        if (spec.getBase() == null || spec.getCost() == null) {
+            throw new IllegalStateException("Rules specification must define base and cost maps");
+        }
+        // Snapshots keep immutable copies, which do not take nulls
+        if (spec.getBase().containsValue(null) || spec.getCost().containsValue(null)) {
+            throw new IllegalStateException("Base and cost values must not be null");
+        }
+        checkSkillKeys(spec);
+        RulesSpec.PenaltyRules penalties = spec.getPenaltyRules();
+        if (penalties != null) {
+            List<Integer> thresholds = penalties.getThresholds();
+            List<Double> multipliers = penalties.getMultipliers();
+            if (thresholds == null || multipliers == null) {
+                throw new IllegalStateException("penaltyRules must define thresholds and multipliers");
+            }
+            if (thresholds.contains(null) || multipliers.contains(null)) {
+                throw new IllegalStateException("penaltyRules thresholds and multipliers must not contain null");
+            }
+            if (multipliers.size() < thresholds.size()) {
+                throw new IllegalStateException("Every penalty threshold needs a multiplier");
+            }
+            for (int i = 1; i < thresholds.size(); i++) {
+                if (thresholds.get(i) <= thresholds.get(i - 1)) {
+                    throw new IllegalStateException("penaltyRules thresholds must be ascending, got " + thresholds);
+                }
+            }
+        }
+        RulesSpec.LevelRules levels = spec.getLevelRules();
+        if (levels != null && levels.getXpPerLevel() <= 0) {
+            throw new IllegalStateException("levelRules.xpPerLevel must be positive");
+        }
+    }
+
+    /**
+     * SkillId is the fixed registry of Player fields; a spec key it does not know is never costed
+     * and a SkillId without a cost entry is free, both are most likely typos in the rules file.
+     */
+    private static void checkSkillKeys(RulesSpec spec) {
+        for (String key : spec.getCost().keySet()) {
+            if (SkillId.fromName(key) == null && !XP_KEYS.contains(key)) {
+                logger.warning("Rules cost key '" + key + "' does not match any characteristic or skill");
+            }
+        }
+        for (SkillId skill : SkillId.values()) {
+            if (!spec.getCost().containsKey(skill.getSpecKey())) {
+                logger.warning("Rules specification has no cost for " + skill.getSpecKey() + ", raising it is free");
+            }
+        }
+    }
+
+    @PostConstruct
+    void startWatching() {
+        if (!watch) {
+            return;
+        }
+        if (!location.isFile()) {
+            logger.warning("app.rules.watch is enabled but " + location.getDescription() + " is not a file, watcher not started");
+            return;
+        }
+        try {
+            Path file = location.getFile().toPath().toAbsolutePath();
+            watchService = FileSystems.getDefault().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+
+            Thread watcher = new Thread(() -> watchLoop(file), "rules-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+            logger.info("Watching " + file + " for rules changes");
+        } catch (IOException e) {
+            logger.warning("Rules file watcher could not be started: " + e.getMessage());
+        }
+    }
+
+    private void watchLoop(Path file) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    try {
+                        reload();
+                    } catch (RuntimeException e) {
+                        logger.warning("Rules reload failed, keeping version " + getVersion() + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    @PreDestroy
+    void stopWatching() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    /**
+     * Current compiled rules. Callers that need several values should take the snapshot once
+     * and read everything from it, so a concurrent reload can not mix two versions.
+     */
+    public RulesSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Compiled rules of a ruleset; null, blank or "default" select the default rules.
+     * Engines are compiled on first use and then served from the LRU cache by version.
+     */
+    public RulesSnapshot getSnapshot(String rulesetId) {
+        if (rulesetId == null || rulesetId.isBlank() || DEFAULT_RULESET.equals(rulesetId)) {
+            return snapshot.get();
+        }
+        RulesetSource source = rulesets.get(rulesetId);
+        if (source == null) {
+            throw new RulesetNotFoundException(rulesetId);
+        }
+        return engines.get(source.version(), () -> new RulesSnapshot(source.spec(), maxValue, source.version()));
     }
-    
+
     /**
-     * Initialize the complete rules specification with all characteristics and skills.
+     * Available ruleset ids with their current versions.
      */
-    private RulesSpec initializeRulesSpec() {
-        Map<String, Integer> base = Map.<String, Integer>ofEntries(
-                Map.entry("totalXP", 200000),
-                Map.entry("usedXP", 0),
-                Map.entry("remainingXP", 0),
-
-                Map.entry("APP", 30),
-                Map.entry("BONUS", 0),
-                Map.entry("BRV", 45),
-                Map.entry("STA", 30),
-                Map.entry("AGI", 35),
-                Map.entry("EDU", 20),
-                Map.entry("INT", 30),
-                Map.entry("LUCK", 35),
-                Map.entry("SENSE", 10),
-                Map.entry("WILL", 30),
-                Map.entry("STATUS", 1),
-                Map.entry("SAN", 45),
-                Map.entry("SIZ", 31),
-                Map.entry("STR", 25),
-                Map.entry("ARMOR", 0),
-                Map.entry("RES", 0),
-
-                Map.entry("Accounting", 7),
-                Map.entry("Animal Handling", 9),
-                Map.entry("Anthropology", 6),
-                Map.entry("Appraise", 8),
-                Map.entry("Archeology", 3),
-                Map.entry("Art Craft", 15),
-                Map.entry("Art Craft 2", 14),
-                Map.entry("Artillery", 0),
-                Map.entry("Charm", 20),
-                Map.entry("Climb", 20),
-                Map.entry("Computer Use", 0),
-                Map.entry("Credit Rating", 5),
-                Map.entry("Cthulhu Mythos", 0),
-                Map.entry("Demolitions", 1),
-                Map.entry("Disguise", 5),
-                Map.entry("Dodge", 20),
-                Map.entry("Drive Auto", 10),
-                Map.entry("Electronics", 1),
-                Map.entry("Electrical Repair", 15),
-                Map.entry("Fast Talk", 14),
-                Map.entry("Fighting Brawl", 30),
-                Map.entry("Fighting Other", 30),
-                Map.entry("Firearms Handgun", 30),
-                Map.entry("Firearms Other", 30),
-                Map.entry("Firearms Rifle Shotgun", 30),
-                Map.entry("First Aid", 20),
-                Map.entry("History", 10),
-                Map.entry("Hypnosis", 1),
-                Map.entry("Intimidate", 15),
-                Map.entry("Jump", 20),
-                Map.entry("Language Other 1", 20),
-                Map.entry("Language Other 2", 0),
-                Map.entry("Language Other 3", 0),
-                Map.entry("Language Own", 50),
-                Map.entry("Law", 5),
-                Map.entry("Library Use", 20),
-                Map.entry("Listen", 30),
-                Map.entry("Locksmith", 10),
-                Map.entry("Mechanical Repair", 15),
-                Map.entry("Medicine", 4),
-                Map.entry("Natural World", 15),
-                Map.entry("Navigate", 15),
-                Map.entry("Occult", 4),
-                Map.entry("Operate Heavy Machinery", 1),
-                Map.entry("Persuade", 15),
-                Map.entry("Pilot", 1),
-                Map.entry("Psychoanalysis", 2),
-                Map.entry("Psychology", 10),
-                Map.entry("Read Lips", 1),
-                Map.entry("Ride", 10),
-                Map.entry("Science", 10),
-                Map.entry("Science Other", 21),
-                Map.entry("Science Other 2", 20),
-                Map.entry("Sign Language", 0),
-                Map.entry("Deception", 10),
-                Map.entry("Sleight Of Hand", 10),
-                Map.entry("SPOT", 15),
-                Map.entry("Stealth", 20),
-                Map.entry("Survival", 11),
-                Map.entry("Swim", 22),
-                Map.entry("Throw", 20),
-                Map.entry("Track", 10),
-                Map.entry("Uncommon Language", 1),
-                Map.entry("Other1", 0),
-                Map.entry("Other2", 0),
-                Map.entry("Other3", 0)
-        );
-        
-        Map<String, Integer> cost = Map.<String, Integer>ofEntries(
-                Map.entry("totalXP", 0),
-                Map.entry("usedXP", 0),
-                Map.entry("remainingXP", 0),
-
-                // Characteristics
-                Map.entry("APP", 60),
-                Map.entry("BONUS", 150),
-                Map.entry("BRV", 110),
-                Map.entry("STA", 140),
-                Map.entry("AGI", 180),
-                Map.entry("EDU", 50),
-                Map.entry("INT", 65),
-                Map.entry("LUCK", 180),
-                Map.entry("SENSE", 350),
-                Map.entry("SPOT", 250),
-                Map.entry("WILL", 200),
-                Map.entry("STATUS", 200),
-                Map.entry("SAN", 160),
-                Map.entry("SIZ", 120),
-                Map.entry("STR", 120),
-                Map.entry("ARMOR", 15000),
-                Map.entry("RES", 15000),
-
-                // Skills
-                Map.entry("Accounting", 20),
-                Map.entry("Animal Handling", 90),
-                Map.entry("Anthropology", 20),
-                Map.entry("Appraise", 30),
-                Map.entry("Archeology", 20),
-                Map.entry("Art Craft", 40),
-                Map.entry("Art Craft 2", 40),
-                Map.entry("Artillery", 90),
-                Map.entry("Charm", 120),
-                Map.entry("Climb", 70),
-                Map.entry("Computer Use", 90),
-                Map.entry("Credit Rating", 130),
-                Map.entry("Cthulhu Mythos", 2),
-                Map.entry("Demolitions", 90),
-                Map.entry("Disguise", 60),
-                Map.entry("Dodge", 160),
-                Map.entry("Drive Auto", 90),
-                Map.entry("Electronics", 90),
-                Map.entry("Electrical Repair", 50),
-                Map.entry("Fast Talk", 120),
-                Map.entry("Fighting Brawl", 120),
-                Map.entry("Fighting Other", 120),
-                Map.entry("Firearms Handgun", 160),
-                Map.entry("Firearms Other", 140),
-                Map.entry("Firearms Rifle Shotgun", 140),
-                Map.entry("First Aid", 90),
-                Map.entry("History", 60),
-                Map.entry("Hypnosis", 210),
-                Map.entry("Intimidate", 110),
-                Map.entry("Jump", 100),
-                Map.entry("Language Other 1", 20),
-                Map.entry("Language Other 2", 20),
-                Map.entry("Language Other 3", 20),
-                Map.entry("Language Own", 20),
-                Map.entry("Law", 70),
-                Map.entry("Library Use", 160),
-                Map.entry("Listen", 160),
-                Map.entry("Locksmith", 110),
-                Map.entry("Mechanical Repair", 50),
-                Map.entry("Medicine", 50),
-                Map.entry("Natural World", 80),
-                Map.entry("Navigate", 40),
-                Map.entry("Occult", 140),
-                Map.entry("Operate Heavy Machinery", 40),
-                Map.entry("Persuade", 170),
-                Map.entry("Pilot", 30),
-                Map.entry("Psychoanalysis", 30),
-                Map.entry("Psychology", 170),
-                Map.entry("Read Lips", 190),
-                Map.entry("Ride", 90),
-                Map.entry("Science", 50),
-                Map.entry("Science Other", 50),
-                Map.entry("Science Other 2", 50),
-                Map.entry("Sign Language", 20),
-                Map.entry("Deception", 130),
-                Map.entry("Sleight Of Hand", 120),
-                Map.entry("Stealth", 120),
-                Map.entry("Survival", 30),
-                Map.entry("Swim", 30),
-                Map.entry("Throw", 100),
-                Map.entry("Track", 40),
-                Map.entry("Uncommon Language", 200),
-                Map.entry("Other1", 50),
-                Map.entry("Other2", 100),
-                Map.entry("Other3", 150)
-        );
-        
-        // Multi-level penalty system: 5 threshold levels
-        // Thresholds: 40, 50, 60, 70, 80
-        // Multipliers: 1.5x, 2x, 3x, 4x, 6x
-        List<Integer> penaltyThresholds = Arrays.asList(40, 50, 60, 70, 80);
-        List<Double> penaltyMultipliers = Arrays.asList(1.5, 2.0, 3.0, 4.0, 5.0);
-        RulesSpec.PenaltyRules penalties = new RulesSpec.PenaltyRules(penaltyThresholds, penaltyMultipliers);
-        
-        // Level system configuration
-        // Level = (UsedXP - 100000) / 10000
-        RulesSpec.LevelRules levelRules = new RulesSpec.LevelRules(100000, 10000);
-        
-        return new RulesSpec(base, cost, penalties, levelRules);
+    public Map<String, String> getRulesetVersions() {
+        Map<String, String> versions = new TreeMap<>();
+        versions.put(DEFAULT_RULESET, snapshot.get().getVersion());
+        rulesets.forEach((id, source) -> versions.put(id, source.version()));
+        return versions;
+    }
+
+    public String getVersion() {
+        return snapshot.get().getVersion();
     }
-    
+
     /**
      * Get the complete rules specification.
      * This is used by the frontend to perform client-side calculations consistently.
      */
     public RulesSpec getRulesSpec() {
-        return rulesSpec;
+        return snapshot.get().getSpec();
     }
-    
+
     /**
      * Get base value for a specific characteristic or skill.
      */
     public int getBaseValue(String key) {
-        return rulesSpec.getBase().getOrDefault(key, 0);
+        return getRulesSpec().getBase().getOrDefault(key, 0);
     }
-    
+
     /**
      * Get cost per point for a specific characteristic or skill.
      * Cost = how many XP points are needed to increase by 1.
      */
     public int getCost(String key) {
-        return rulesSpec.getCost().getOrDefault(key, 0);
+        return getRulesSpec().getCost().getOrDefault(key, 0);
     }
-    
+
+    /**
+     * Get the compiled cost tables of the rules specification.
+     * Built once, so cost lookups do not walk the penalty rules again.
+     */
+    public CostTable getCostTable() {
+        return snapshot.get().getCostTable();
+    }
+
     /**
      * Get the penalty rules configuration.
      */
     public RulesSpec.PenaltyRules getPenaltyRules() {
-        return rulesSpec.getPenaltyRules();
+        return getRulesSpec().getPenaltyRules();
     }
-    
+
     /**
      * Get the level rules configuration.
      */
     public RulesSpec.LevelRules getLevelRules() {
-        return rulesSpec.getLevelRules();
+        return getRulesSpec().getLevelRules();
     }
 }
@@ -0,0 +1,88 @@
+package com.bora.d100.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import com.bora.d100.dto.RulesSpec;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Immutable, compiled version of a rules specification.
+ * A request takes one snapshot and uses it to the end, even if the rules are reloaded meanwhile.
+ */
+public final class RulesSnapshot {
+
+    // Sorted keys: the same rules give the same bytes (and ETag) on every instance and restart
+    private static final ObjectMapper JSON = JsonMapper.builder()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    private final RulesSpec spec;
+    private final CostTable costTable;
+    private final EncodedPayload json;
+    private final String version;
+    private final Instant loadedAt;
+    private volatile EncodedPayload costTablesJson;
+
+    RulesSnapshot(RulesSpec spec, int maxValue, String version) {
+        this.spec = immutableCopy(spec);
+        this.costTable = CostTable.compile(this.spec, maxValue);
+        this.json = EncodedPayload.of(JSON.writeValueAsBytes(this.spec));
+        this.version = version;
+        this.loadedAt = Instant.now();
+    }
+
+    public RulesSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * The spec serialized once for the rules endpoints.
+     */
+    public EncodedPayload getJson() {
+        return json;
+    }
+
+    public CostTable getCostTable() {
+        return costTable;
+    }
+
+    /**
+     * The compiled cost tables serialized for clients (see CostTablesDTO), built on first use.
+     */
+    public EncodedPayload getCostTablesJson() {
+        EncodedPayload payload = costTablesJson;
+        if (payload == null) {
+            // Concurrent first calls build identical payloads, either one may stay
+            payload = EncodedPayload.of(JSON.writeValueAsBytes(costTable.export(version)));
+            costTablesJson = payload;
+        }
+        return payload;
+    }
+
+    /**
+     * Content hash of the rules source, changes whenever any rule changes.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    private static RulesSpec immutableCopy(RulesSpec spec) {
+        RulesSpec.PenaltyRules penalties = spec.getPenaltyRules();
+        RulesSpec.LevelRules levels = spec.getLevelRules();
+        return new RulesSpec(
+                Map.copyOf(spec.getBase()),
+                Map.copyOf(spec.getCost()),
+                penalties == null ? null : new RulesSpec.PenaltyRules(
+                        List.copyOf(penalties.getThresholds()), List.copyOf(penalties.getMultipliers())),
+                levels == null ? null : new RulesSpec.LevelRules(levels.getBaseXP(), levels.getXpPerLevel()));
+    }
+}
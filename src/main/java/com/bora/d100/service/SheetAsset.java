@@ -0,0 +1,30 @@
+package com.bora.d100.service;
+
+/**
+ * An image taken out of the sheet template, served under its fingerprinted name
+ * (content hash + extension) so it can be cached as immutable.
+ */
+public final class SheetAsset {
+
+    private final String name;
+    private final String contentType;
+    private final byte[] data;
+
+    SheetAsset(String name, String contentType, byte[] data) {
+        this.name = name;
+        this.contentType = contentType;
+        this.data = data;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
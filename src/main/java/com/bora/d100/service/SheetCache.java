@@ -0,0 +1,97 @@
+package com.bora.d100.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rendered character sheets by player id, bounded by total bytes (least recently used out first).
+ *
+ * An entry is only valid for the template version it was rendered with. Every invalidation bumps
+ * a generation counter; a sheet rendered from data read before an invalidation is not stored,
+ * so a render racing with an update can not put a stale sheet back into the cache.
+ * Guarded by a ReentrantLock rather than a monitor: request threads may be virtual threads,
+ * which a contended monitor pins to their carrier.
+ */
+@Service
+public class SheetCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<Long, RenderedSheet> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long totalBytes;
+    private long generation;
+
+    public SheetCache(@Value("${app.sheet.cache-max-bytes:67108864}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public RenderedSheet get(Long playerId, String templateVersion) {
+        lock.lock();
+        try {
+            RenderedSheet sheet = entries.get(playerId);
+            return sheet != null && sheet.getTemplateVersion().equals(templateVersion) ? sheet : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Generation to pass to {@link #put} for a sheet rendered from data read after this call.
+     */
+    public long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(Long playerId, RenderedSheet sheet, long readGeneration) {
+        lock.lock();
+        try {
+            if (readGeneration != generation || sheet.getSize() > maxBytes) {
+                return;
+            }
+            RenderedSheet previous = entries.put(playerId, sheet);
+            totalBytes += sheet.getSize() - (previous != null ? previous.getSize() : 0);
+
+            Iterator<RenderedSheet> eldest = entries.values().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                totalBytes -= eldest.next().getSize();
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bytes held by the cached sheets (identity and gzip copies).
+     */
+    long getTotalBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(Long playerId) {
+        lock.lock();
+        try {
+            generation++;
+            RenderedSheet removed = entries.remove(playerId);
+            if (removed != null) {
+                totalBytes -= removed.getSize();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,136 +1,299 @@
 package com.bora.d100.service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
 import com.bora.d100.model.Player;
+import com.bora.d100.model.SkillId;
 
+/**
+ * Renders character sheets from templates/character-sheet.html.
+ * The template is compiled once into a {@link SheetTemplate}; if it is a file (e.g. during
+ * development) it is compiled again when its modification time changes.
+ * Embedded data URL images are taken out at compile time and served as {@link SheetAsset}s from
+ * /sheets/assets/{fingerprint}; the inline variant keeps them for self-contained offline files.
+ * Downloads are opened from disk, so they only link the assets when app.sheet.asset-base-url
+ * makes the links absolute; without it they are the inline variant, as before assets existed.
+ * Rendered sheets are kept in the {@link SheetCache} until the player changes.
+ */
 @Service
 public class SheetService {
 
-    @Value("classpath:templates/character-sheet.html")
-    private Resource htmlTemplate;
+    private static final Logger logger = Logger.getLogger(SheetService.class.getName());
+
+    private static final Map<String, Function<Player, String>> RESOLVERS = buildResolvers();
+
+    private static final Pattern ZIP_NAME_UNSAFE = Pattern.compile("[\\\\/:*?\"<>|\\p{Cntrl}]");
+
+    private static final Pattern DATA_URL = Pattern.compile("data:(image/[a-z0-9.+-]+);base64,([A-Za-z0-9+/]+={0,2})");
+
+    public static final String ASSET_PATH = "/sheets/assets/";
+
+    // Characters loaded per query during a ZIP export
+    private static final int EXPORT_BATCH_SIZE = 50;
+
+    private final Resource htmlTemplate;
+    private final String assetBaseUrl;
+    private final PlayerService playerService;
+    private final SheetCache sheetCache;
+    private final ReentrantLock compileLock = new ReentrantLock();
+    private volatile CompiledSheet compiled;
+    private volatile long templateLastModified;
+
+    /**
+     * The variants of one template source and the assets taken out of it. export links the
+     * assets relative to the sheet, as stored next to it in a ZIP export.
+     */
+    private record CompiledSheet(SheetTemplate linked, SheetTemplate inline, SheetTemplate export, Map<String, SheetAsset> assets) {
+    }
+
+    public SheetService(@Value("${app.sheet.template:classpath:templates/character-sheet.html}") Resource htmlTemplate,
+                        @Value("${app.sheet.asset-base-url:}") String assetBaseUrl,
+                        PlayerService playerService, SheetCache sheetCache) {
+        this.htmlTemplate = htmlTemplate;
+        this.assetBaseUrl = assetBaseUrl.endsWith("/") ? assetBaseUrl.substring(0, assetBaseUrl.length() - 1) : assetBaseUrl;
+        this.playerService = playerService;
+        this.sheetCache = sheetCache;
+        this.compiled = compile();
+    }
+
+    /**
+     * Rendered sheet of a player, from the cache when the player did not change since the last
+     * render; the player is only loaded on a cache miss.
+     */
+    public RenderedSheet getSheet(Long playerId) {
+        SheetTemplate current = downloadTemplate(getCompiled());
+        RenderedSheet cached = sheetCache.get(playerId, current.getVersion());
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = sheetCache.generation();
+        Player player = playerService.getPlayerById(playerId);
+        byte[] html = render(current, player);
+        RenderedSheet sheet = new RenderedSheet(EncodedPayload.of(html), fileName(player), current.getVersion());
+        sheetCache.put(playerId, sheet, generation);
+        return sheet;
+    }
+
+    public SheetAsset getAsset(String name) {
+        return getCompiled().assets().get(name);
+    }
+
+    public static String fileName(Player player) {
+        return (player.getName() != null ? player.getName() : "character") + "-sheet.html";
+    }
 
     public byte[] generateCharacterHtml(Player player) {
+        return render(downloadTemplate(getCompiled()), player);
+    }
+
+    /**
+     * Variant for a downloaded sheet: a same-origin link ("/sheets/assets/...") would not resolve
+     * in a file opened from disk, so without an absolute asset base the images stay embedded.
+     */
+    private SheetTemplate downloadTemplate(CompiledSheet current) {
+        return assetBaseUrl.isEmpty() ? current.inline() : current.linked();
+    }
+
+    private byte[] render(SheetTemplate current, Player player) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(current.getLength() + 4096);
         try {
-            String html = new String(htmlTemplate.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            current.render(player, out);
+        } catch (IOException e) {
+            throw new RuntimeException("Character HTML sheet oluşturulurken hata oluştu", e);
+        }
+        return out.toByteArray();
+    }
 
-            Map<String, String> values = buildPlaceholderMap(player);
+    /**
+     * Sheet'i doğrudan response'a yazar, tüm dokümanın kopyası bellekte tutulmaz.
+     * inline: görseller data URL olarak dokümanın içinde kalır (offline açılabilen tek dosya).
+     */
+    public void writeCharacterHtml(Player player, OutputStream out, boolean inline) throws IOException {
+        CompiledSheet current = getCompiled();
+        (inline ? current.inline() : current.linked()).render(player, out);
+    }
+
+    /**
+     * Writes the sheets of the given characters (ids, repeats ignored) or of all characters of a user as a ZIP:
+     * the assets once under assets/, then one HTML entry per character. Characters are loaded
+     * in batches and each sheet is rendered straight into its entry, so memory use does not
+     * depend on the party size and every finished entry is flushed to the client.
+     */
+    public void writeSheetsZip(List<Long> ids, Long userId, OutputStream out) throws IOException {
+        CompiledSheet current = getCompiled();
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+
+        for (SheetAsset asset : current.assets().values()) {
+            // Images are compressed already
+            ZipEntry entry = new ZipEntry("assets/" + asset.getName());
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(asset.getData().length);
+            CRC32 crc = new CRC32();
+            crc.update(asset.getData());
+            entry.setCrc(crc.getValue());
+            zip.putNextEntry(entry);
+            zip.write(asset.getData());
+            zip.closeEntry();
+        }
 
-            for (Map.Entry<String, String> entry : values.entrySet()) {
-                String placeholder = "${" + entry.getKey() + "}";
-                html = html.replace(placeholder, entry.getValue() != null ? entry.getValue() : "");
+        int sheets = 0;
+        if (ids != null) {
+            // A repeated id would repeat its entry name, which ZipOutputStream rejects after the response has started
+            Set<Long> distinct = new LinkedHashSet<>(ids);
+            distinct.remove(null);
+            List<Long> unique = List.copyOf(distinct);
+            for (int from = 0; from < unique.size(); from += EXPORT_BATCH_SIZE) {
+                List<Long> batch = unique.subList(from, Math.min(from + EXPORT_BATCH_SIZE, unique.size()));
+                sheets += writeZipEntries(current.export(), playerService.getPlayersByIds(batch), zip);
             }
+        } else {
+            long after = 0;
+            List<Player> batch;
+            do {
+                batch = playerService.getPlayersOfUser(userId, after, EXPORT_BATCH_SIZE);
+                sheets += writeZipEntries(current.export(), batch, zip);
+                after = batch.isEmpty() ? after : batch.get(batch.size() - 1).getId();
+            } while (batch.size() == EXPORT_BATCH_SIZE);
+        }
 
-            return html.getBytes(StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Character HTML sheet oluşturulurken hata oluştu", e);
+        zip.finish();
+        logger.info("Sheet export finished: " + sheets + " sheets");
+    }
+
+    private static int writeZipEntries(SheetTemplate export, List<Player> players, ZipOutputStream zip) throws IOException {
+        for (Player player : players) {
+            // The id keeps entries of characters with the same name apart
+            zip.putNextEntry(new ZipEntry(player.getId() + "-" + ZIP_NAME_UNSAFE.matcher(fileName(player)).replaceAll("_")));
+            export.render(player, zip);
+            zip.closeEntry();
+            zip.flush();
+        }
+        return players.size();
+    }
+
+    private CompiledSheet getCompiled() {
+        if (htmlTemplate.isFile()) {
+            try {
+                if (htmlTemplate.lastModified() != templateLastModified) {
+                    // Not a monitor: reading the file would pin a virtual thread to its carrier
+                    compileLock.lock();
+                    try {
+                        if (htmlTemplate.lastModified() != templateLastModified) {
+                            compiled = compile();
+                        }
+                    } finally {
+                        compileLock.unlock();
+                    }
+                }
+            } catch (IOException e) {
+                logger.warning("Sheet template could not be checked, keeping the compiled one: " + e.getMessage());
+            }
         }
+        return compiled;
     }
 
-    private Map<String, String> buildPlaceholderMap(Player p) {
-        Map<String, String> m = new HashMap<>();
+    private CompiledSheet compile() {
+        try (InputStream in = htmlTemplate.getInputStream()) {
+            long lastModified = htmlTemplate.isFile() ? htmlTemplate.lastModified() : 0;
+            byte[] source = in.readAllBytes();
+            String html = new String(source, StandardCharsets.UTF_8);
+            String version = ContentHash.sha256Hex(source, 8);
+
+            Map<String, SheetAsset> assets = new HashMap<>();
+            String linkedHtml = extractAssets(html, assetBaseUrl + ASSET_PATH, assets);
+            // The asset base is part of the linked output, a new base must not hit sheets cached with the old one
+            SheetTemplate linked = SheetTemplate.compile(linkedHtml, RESOLVERS, version + (assetBaseUrl.isEmpty() ? "" : "@" + assetBaseUrl));
+            SheetTemplate inline = SheetTemplate.compile(html, RESOLVERS, version);
+            SheetTemplate export = SheetTemplate.compile(extractAssets(html, "assets/", assets), RESOLVERS, version);
+
+            templateLastModified = lastModified;
+            logger.info("Sheet template compiled: " + linked.getLength() + " bytes (" + inline.getLength() + " inline), "
+                    + linked.getSlotCount() + " placeholders, " + assets.size() + " assets");
+            return new CompiledSheet(linked, inline, export, Map.copyOf(assets));
+        } catch (IOException e) {
+            throw new IllegalStateException("Character sheet template could not be read from " + htmlTemplate.getDescription(), e);
+        }
+    }
+
+    /**
+     * Replaces every data URL image with the URL of an asset (content hash + extension) and collects the assets.
+     */
+    private static String extractAssets(String html, String urlPrefix, Map<String, SheetAsset> assets) {
+        Matcher matcher = DATA_URL.matcher(html);
+        StringBuilder linked = new StringBuilder(html.length());
+        while (matcher.find()) {
+            String contentType = matcher.group(1);
+            byte[] data = Base64.getDecoder().decode(matcher.group(2));
+            String name = ContentHash.sha256Hex(data, 8) + "." + extension(contentType);
+            assets.putIfAbsent(name, new SheetAsset(name, contentType, data));
+            matcher.appendReplacement(linked, Matcher.quoteReplacement(urlPrefix + name));
+        }
+        matcher.appendTail(linked);
+        return linked.toString();
+    }
+
+    private static String extension(String contentType) {
+        String subtype = contentType.substring("image/".length());
+        return switch (subtype) {
+            case "jpeg" -> "jpg";
+            case "svg+xml" -> "svg";
+            case "x-icon", "vnd.microsoft.icon" -> "ico";
+            default -> subtype;
+        };
+    }
+
+    private static Map<String, Function<Player, String>> buildResolvers() {
+        Map<String, Function<Player, String>> m = new HashMap<>();
 
         // Temel bilgiler
-        m.put("PLAYER", safe(p.getPlayer()));
-        m.put("NAME", safe(p.getName()));
-        m.put("BIRTH_PLACE", safe(p.getBirthPlace()));
-        m.put("PRONOUN", safe(p.getPronoun()));
-        m.put("OCCUPATION", safe(p.getOccupation()));
-        m.put("RESIDENCE", safe(p.getResidence()));
-        m.put("AGE", String.valueOf(p.getAge()));
+        m.put("PLAYER", Player::getPlayer);
+        m.put("NAME", Player::getName);
+        m.put("BIRTH_PLACE", Player::getBirthPlace);
+        m.put("PRONOUN", Player::getPronoun);
+        m.put("OCCUPATION", Player::getOccupation);
+        m.put("RESIDENCE", Player::getResidence);
+        m.put("AGE", p -> String.valueOf(p.getAge()));
 
         // Meta
-        m.put("TOTAL_XP", String.valueOf(p.getTotalXP()));
-        m.put("USED_XP", String.valueOf(p.getUsedXP()));
-        m.put("REMAINING_XP", String.valueOf(p.getRemainingXP()));
+        m.put("TOTAL_XP", p -> String.valueOf(p.getTotalXP()));
+        m.put("USED_XP", p -> String.valueOf(p.getUsedXP()));
+        m.put("REMAINING_XP", p -> String.valueOf(p.getRemainingXP()));
 
         // HP/MP/Build/DB/MOVE
-        m.put("HP", String.valueOf(p.getHP()));
-        m.put("MP", String.valueOf(p.getMP()));
-        m.put("MOVE", String.valueOf(p.getMOVE()));
-        m.put("BUILD", String.valueOf(p.getBuild()));
-        m.put("DAMAGE_BONUS", safe(p.getDamageBonus()));
-
-        // Ana özellikler
-        m.put("APP", String.valueOf(p.getAPP()));
-        m.put("BONUS", String.valueOf(p.getBONUS()));
-        m.put("BRV", String.valueOf(p.getBRV()));
-        m.put("STA", String.valueOf(p.getCON()));
-        m.put("AGI", String.valueOf(p.getDEX()));
-        m.put("EDU", String.valueOf(p.getEDU()));
-        m.put("INT", String.valueOf(p.getINT()));
-        m.put("LUCK", String.valueOf(p.getLUCK()));
-        m.put("SENSE", String.valueOf(p.getSENSE()));
-        m.put("WILL", String.valueOf(p.getWILL()));
-        m.put("STATUS", String.valueOf(p.getSTATUS()));
-        m.put("SAN", String.valueOf(p.getSAN()));
-        m.put("SIZ", String.valueOf(p.getSIZ()));
-        m.put("STR", String.valueOf(p.getSTR()));
-
-        // Skill'ler – JSON / entity’ndeki isimlerle senkron
-        m.put("ACCOUNTING", String.valueOf(p.getAccounting()));
-        m.put("ANTHROPOLOGY", String.valueOf(p.getAnthropology()));
-        m.put("APPRAISE", String.valueOf(p.getAppraise()));
-        m.put("ARCHEOLOGY", String.valueOf(p.getArcheology()));
-        m.put("ARTCRAFT", String.valueOf(p.getArtCraft()));
-        m.put("ARTCRAFT2", String.valueOf(p.getArtCraft2()));
-        m.put("CHARM", String.valueOf(p.getCharm()));
-        m.put("CLIMB", String.valueOf(p.getClimb()));
-        m.put("CREDIT_RATING", String.valueOf(p.getCreditRating()));
-        m.put("CTHULHU_MYTHOS", String.valueOf(p.getCthulhuMythos()));
-        m.put("DISGUISE", String.valueOf(p.getDisguise()));
-        m.put("DODGE", String.valueOf(p.getDodge()));
-        m.put("DRIVE_AUTO", String.valueOf(p.getDriveAuto()));
-        m.put("ELECTRICAL_REPAIR", String.valueOf(p.getElectricalRepair()));
-        m.put("FAST_TALK", String.valueOf(p.getFastTalk()));
-        m.put("FIGHTING_BRAWL", String.valueOf(p.getFightingBrawl()));
-        m.put("FIGHTING_OTHER", String.valueOf(p.getFightingOther()));
-        m.put("FIREARMS_HANDGUN", String.valueOf(p.getFirearmsHandgun()));
-        m.put("FIREARMS_OTHER", String.valueOf(p.getFirearmsOther()));
-        m.put("FIREARMS_RIFLE_SHOTGUN", String.valueOf(p.getFirearmsRifleShotgun()));
-        m.put("FIRST_AID", String.valueOf(p.getFirstAid()));
-        m.put("HISTORY", String.valueOf(p.getHistory()));
-        m.put("INTIMIDATE", String.valueOf(p.getIntimidate()));
-        m.put("JUMP", String.valueOf(p.getJump()));
-        m.put("LANG_OTHER1", String.valueOf(p.getLanguageOther1()));
-        m.put("LANG_OTHER2", String.valueOf(p.getLanguageOther2()));
-        m.put("LANG_OTHER3", String.valueOf(p.getLanguageOther3()));
-        m.put("LANG_OWN", String.valueOf(p.getLanguageOwn()));
-        m.put("LAW", String.valueOf(p.getLaw()));
-        m.put("LIBRARY_USE", String.valueOf(p.getLibraryUse()));
-        m.put("LISTEN", String.valueOf(p.getListen()));
-        m.put("LOCKSMITH", String.valueOf(p.getLocksmith()));
-        m.put("MECH_REPAIR", String.valueOf(p.getMechanicalRepair()));
-        m.put("MEDICINE", String.valueOf(p.getMedicine()));
-        m.put("NATURAL_WORLD", String.valueOf(p.getNaturalWorld()));
-        m.put("NAVIGATE", String.valueOf(p.getNavigate()));
-        m.put("OCCULT", String.valueOf(p.getOccult()));
-        m.put("PERSUADE", String.valueOf(p.getPersuade()));
-        m.put("PILOT", String.valueOf(p.getPilot()));
-        m.put("PSYCHOANALYSIS", String.valueOf(p.getPsychoanalysis()));
-        m.put("PSYCHOLOGY", String.valueOf(p.getPsychology()));
-        m.put("RIDE", String.valueOf(p.getRide()));
-        m.put("SCIENCE", String.valueOf(p.getScience()));
-        m.put("SCIENCE_OTHER", String.valueOf(p.getScienceOther()));
-        m.put("SCIENCE_OTHER2", String.valueOf(p.getScienceOther2()));
-        m.put("SLEIGHT_OF_HAND", String.valueOf(p.getSleightOfHand()));
-        m.put("SPOT", String.valueOf(p.getSPOT()));
-        m.put("STEALTH", String.valueOf(p.getStealth()));
-        m.put("SURVIVAL", String.valueOf(p.getSurvival()));
-        m.put("SWIM", String.valueOf(p.getSwim()));
-        m.put("THROW", String.valueOf(p.getThrow()));
-        m.put("TRACK", String.valueOf(p.getTrack()));
-
-        return m;
-    }
-
-    private String safe(String s) {
-        return s == null ? "" : s;
+        m.put("HP", p -> String.valueOf(p.getHP()));
+        m.put("MP", p -> String.valueOf(p.getMP()));
+        m.put("MOVE", p -> String.valueOf(p.getMOVE()));
+        m.put("BUILD", p -> String.valueOf(p.getBuild()));
+        m.put("DAMAGE_BONUS", Player::getDamageBonus);
+
+        // Ana özellikler ve skill'ler – SkillId sheet isimleriyle senkron
+        for (SkillId id : SkillId.values()) {
+            m.put(id.getSheetKey(), p -> String.valueOf(p.getSkill(id)));
+        }
+
+        return Map.copyOf(m);
     }
 }
@@ -0,0 +1,116 @@
+package com.bora.d100.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.bora.d100.model.Player;
+
+/**
+ * Character sheet template compiled once into pre-encoded literal segments and placeholder slots.
+ *
+ * Rendering writes literal[0], slot[0], literal[1], ... literal[n] straight to the output: one pass
+ * over the template, no copies of the document. Placeholders (${NAME}) without a resolver stay in
+ * the output as they are, like they did with String.replace.
+ */
+public final class SheetTemplate {
+
+    private final byte[][] literals;
+    private final List<Function<Player, String>> slots;
+    private final int length;
+    private final String version;
+
+    private SheetTemplate(byte[][] literals, List<Function<Player, String>> slots, int length, String version) {
+        this.literals = literals;
+        this.slots = slots;
+        this.length = length;
+        this.version = version;
+    }
+
+    /**
+     * @param version content hash of the template source, part of the cache key of rendered sheets
+     */
+    public static SheetTemplate compile(String template, Map<String, Function<Player, String>> resolvers, String version) {
+        List<byte[]> literals = new ArrayList<>();
+        List<Function<Player, String>> slots = new ArrayList<>();
+
+        int literalStart = 0;
+        int start = template.indexOf("${");
+        while (start >= 0) {
+            int end = template.indexOf('}', start + 2);
+            if (end < 0) {
+                break;
+            }
+            Function<Player, String> resolver = resolvers.get(template.substring(start + 2, end));
+            if (resolver != null) {
+                literals.add(template.substring(literalStart, start).getBytes(StandardCharsets.UTF_8));
+                slots.add(resolver);
+                literalStart = end + 1;
+            }
+            start = template.indexOf("${", resolver != null ? end + 1 : start + 2);
+        }
+        literals.add(template.substring(literalStart).getBytes(StandardCharsets.UTF_8));
+
+        int length = 0;
+        for (byte[] literal : literals) {
+            length += literal.length;
+        }
+        return new SheetTemplate(literals.toArray(new byte[0][]), List.copyOf(slots), length, version);
+    }
+
+    public void render(Player player, OutputStream out) throws IOException {
+        for (int i = 0; i < slots.size(); i++) {
+            out.write(literals[i]);
+            String value = slots.get(i).apply(player);
+            if (value != null && !value.isEmpty()) {
+                out.write(escapeHtml(value).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        out.write(literals[slots.size()]);
+    }
+
+    /**
+     * Size of the template without placeholders, a good initial buffer size for a rendered sheet.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getSlotCount() {
+        return slots.size();
+    }
+
+    static String escapeHtml(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement = switch (value.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(value.charAt(i));
+                }
+            }
+        }
+        // Plain values (numbers, most names) are written without a copy
+        return escaped != null ? escaped.toString() : value;
+    }
+}
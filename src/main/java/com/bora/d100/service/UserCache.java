@@ -0,0 +1,70 @@
+package com.bora.d100.service;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.bora.d100.model.User;
+import com.bora.d100.repository.UserRepository;
+
+/**
+ * Short-lived cache of user records for the handlers that need the full User of a token.
+ * Entries expire after app.auth.user-cache-ttl and are dropped when a user is changed or
+ * deleted through JPA (see UserCacheListener).
+ * Cached users are detached: fine as a reference (e.g. the owner of a new character), not for changes.
+ */
+@Service
+public class UserCache
+{
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private record Entry(User user, long expiresAt) {
+    }
+
+    public UserCache(UserRepository userRepository,
+                     @Value("${app.auth.user-cache-ttl:PT5M}") Duration ttl,
+                     @Value("${app.auth.user-cache-size:10000}") int maxEntries)
+    {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the user, or null if there is no user with this id
+     */
+    public User get(Long userId)
+    {
+        if (userId == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Entry cached = entries.get(userId);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.user();
+        }
+
+        User user = userRepository.findById(userId).orElse(null);
+        if (user != null) {
+            if (entries.size() >= maxEntries) {
+                entries.values().removeIf(entry -> entry.expiresAt() <= now);
+            }
+            if (entries.size() < maxEntries) {
+                entries.put(userId, new Entry(user, now + ttlMillis));
+            }
+        }
+        return user;
+    }
+
+    public void invalidate(Long userId)
+    {
+        if (userId != null) {
+            entries.remove(userId);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.bora.d100.service;
+
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import com.bora.d100.model.User;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Drops a user from the UserCache when it is changed (e.g. its role) or deleted.
+ * Created by Hibernate through Spring's bean container; the cache is injected lazily because it
+ * depends on the repositories, which depend on the EntityManagerFactory creating this listener.
+ */
+@Component
+public class UserCacheListener
+{
+    private final UserCache userCache;
+
+    public UserCacheListener(@Lazy UserCache userCache)
+    {
+        this.userCache = userCache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    void evict(User user)
+    {
+        userCache.invalidate(user.getId());
+    }
+}
@@ -0,0 +1,235 @@
+package com.bora.d100.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.springframework.stereotype.Service;
+
+import com.bora.d100.dto.XPOptimizeRequestDTO;
+import com.bora.d100.dto.XPOptimizeResponseDTO;
+import com.bora.d100.model.Player;
+import com.bora.d100.model.SkillId;
+
+/**
+ * Finds the best way to spend an XP budget across several weighted skills.
+ *
+ * Every chosen skill is a group of options (raise it by 0, 1, 2, ... points) whose costs come
+ * from the compiled cumulative tables. The inverse cost function (CostTable#maxReachable) bounds
+ * each group, then an exact group knapsack over the budget picks one option per skill. Budgets
+ * are counted in units of the gcd of all option costs, which keeps the table small for the
+ * usual cost values; if it would still be too large (work or memory of the choice matrix), a
+ * greedy allocation by gain per XP is used.
+ * Target values never exceed the compiled table range (app.rules.max-value).
+ */
+@Service
+public class XPOptimizerService {
+
+    private static final Logger logger = Logger.getLogger(XPOptimizerService.class.getName());
+
+    private static final long MAX_EXACT_WORK = 50_000_000L;
+    // Two double rows of units + 1 entries: at most 4 MB
+    private static final int MAX_EXACT_UNITS = 250_000;
+    // Cells of the short[skills][units + 1] choice matrix: at most 4 MB per request
+    static final long MAX_EXACT_CELLS = 2_000_000L;
+    // Options per skill; the knapsack remembers the chosen step in a short
+    static final int MAX_STEPS = Short.MAX_VALUE;
+
+    private final RulesService rulesService;
+
+    public XPOptimizerService(RulesService rulesService) {
+        this.rulesService = rulesService;
+    }
+
+    public XPOptimizeResponseDTO optimize(XPOptimizeRequestDTO request) {
+        Player player = request.getPlayer();
+        if (player == null) {
+            throw new IllegalArgumentException("player is required");
+        }
+        CostTable costTable = rulesService.getSnapshot(player.getRulesetId()).getCostTable();
+        int[] values = player.toSkillVector();
+
+        int budget = request.getBudget() != null
+                ? request.getBudget()
+                : player.getTotalXP() - costTable.totalCostFromBase(values);
+        budget = Math.max(0, budget);
+        // Above the compiled range costs come from the slow loop, and the option arrays grow with the limit
+        int limit = request.getMaxValue() != null
+                ? Math.min(request.getMaxValue(), costTable.getMaxValue())
+                : costTable.getMaxValue();
+
+        Map<SkillId, Double> chosen = resolveWeights(request.getWeights());
+        SkillId[] skills = chosen.keySet().toArray(new SkillId[0]);
+        double[] weights = new double[skills.length];
+        int[][] costs = new int[skills.length][];
+        long optionCount = 0;
+        long gcd = 0;
+
+        for (int s = 0; s < skills.length; s++) {
+            SkillId skill = skills[s];
+            int start = values[skill.ordinal()];
+            int highest = (int) Math.min(costTable.maxReachable(skill, start, budget, limit), (long) start + MAX_STEPS);
+            weights[s] = chosen.get(skill);
+            costs[s] = new int[highest - start + 1];
+            for (int step = 1; step < costs[s].length; step++) {
+                costs[s][step] = costTable.costBetween(skill, start, start + step);
+                gcd = gcd(gcd, costs[s][step]);
+            }
+            optionCount += costs[s].length;
+        }
+
+        int[] steps;
+        boolean exact = true;
+        if (fitsCompletely(costs, budget)) {
+            steps = new int[skills.length];
+            for (int s = 0; s < skills.length; s++) {
+                steps[s] = costs[s].length - 1;
+            }
+        } else {
+            int unit = gcd == 0 ? 1 : (int) gcd;
+            int units = budget / unit;
+            exact = fitsExact(skills.length, units, optionCount);
+            steps = exact ? allocateExact(costs, weights, unit, units) : allocateGreedy(costs, weights, budget);
+        }
+
+        XPOptimizeResponseDTO response = new XPOptimizeResponseDTO();
+        Map<String, Integer> targets = new LinkedHashMap<>();
+        Map<String, Integer> spent = new LinkedHashMap<>();
+        int spentXP = 0;
+        double score = 0;
+        for (int s = 0; s < skills.length; s++) {
+            targets.put(skills[s].getFieldName(), values[skills[s].ordinal()] + steps[s]);
+            spent.put(skills[s].getFieldName(), costs[s][steps[s]]);
+            spentXP += costs[s][steps[s]];
+            score += weights[s] * steps[s];
+        }
+        response.setTargets(targets);
+        response.setCosts(spent);
+        response.setBudget(budget);
+        response.setSpentXP(spentXP);
+        response.setRemainingXP(budget - spentXP);
+        response.setScore(score);
+        response.setExact(exact);
+
+        logger.info("XP optimizer: " + skills.length + " skills, budget " + budget + ", spent " + spentXP + (exact ? "" : " (greedy)"));
+        return response;
+    }
+
+    private Map<SkillId, Double> resolveWeights(Map<String, Double> weights) {
+        if (weights == null || weights.isEmpty()) {
+            throw new IllegalArgumentException("At least one skill weight is required");
+        }
+        Map<SkillId, Double> resolved = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : weights.entrySet()) {
+            SkillId skill = SkillId.fromName(entry.getKey());
+            if (skill == null) {
+                throw new IllegalArgumentException("Unknown skill: " + entry.getKey());
+            }
+            if (entry.getValue() != null && entry.getValue() > 0) {
+                resolved.merge(skill, entry.getValue(), Double::sum);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Whether the exact allocator stays within its time (options x budget units) and memory
+     * (choice matrix and score rows) bounds.
+     */
+    static boolean fitsExact(int skillCount, int units, long optionCount) {
+        long columns = units + 1L;
+        return units <= MAX_EXACT_UNITS
+                && columns * skillCount <= MAX_EXACT_CELLS
+                && columns * optionCount <= MAX_EXACT_WORK;
+    }
+
+    private static boolean fitsCompletely(int[][] costs, int budget) {
+        long total = 0;
+        for (int[] options : costs) {
+            total += options[options.length - 1];
+        }
+        return total <= budget;
+    }
+
+    /**
+     * Group knapsack: best[b] is the best score of the skills processed so far with b budget units.
+     * choice[s][b] remembers the step picked for skill s so the allocation can be rebuilt.
+     */
+    private int[] allocateExact(int[][] costs, double[] weights, int unit, int units) {
+        double[] best = new double[units + 1];
+        double[] next = new double[units + 1];
+        short[][] choice = new short[costs.length][units + 1];
+
+        for (int s = 0; s < costs.length; s++) {
+            for (int b = 0; b <= units; b++) {
+                double bestScore = best[b];
+                int bestStep = 0;
+                for (int step = 1; step < costs[s].length; step++) {
+                    int cost = costs[s][step] / unit;
+                    if (cost > b) {
+                        break; // cumulative costs never decrease
+                    }
+                    double score = best[b - cost] + weights[s] * step;
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestStep = step;
+                    }
+                }
+                next[b] = bestScore;
+                choice[s][b] = (short) bestStep;
+            }
+            // The old row is fully overwritten by the next skill
+            double[] previous = best;
+            best = next;
+            next = previous;
+        }
+
+        int[] steps = new int[costs.length];
+        int b = units;
+        for (int s = costs.length - 1; s >= 0; s--) {
+            steps[s] = choice[s][b];
+            b -= costs[s][steps[s]] / unit;
+        }
+        return steps;
+    }
+
+    /**
+     * Repeatedly buys the next point with the highest gain per XP that still fits the budget.
+     */
+    private int[] allocateGreedy(int[][] costs, double[] weights, int budget) {
+        int[] steps = new int[costs.length];
+        int remaining = budget;
+        while (true) {
+            int bestSkill = -1;
+            double bestRatio = -1;
+            for (int s = 0; s < costs.length; s++) {
+                if (steps[s] + 1 >= costs[s].length) {
+                    continue;
+                }
+                int stepCost = costs[s][steps[s] + 1] - costs[s][steps[s]];
+                if (stepCost > remaining) {
+                    continue;
+                }
+                double ratio = stepCost == 0 ? Double.MAX_VALUE : weights[s] / stepCost;
+                if (ratio > bestRatio) {
+                    bestRatio = ratio;
+                    bestSkill = s;
+                }
+            }
+            if (bestSkill < 0) {
+                return steps;
+            }
+            remaining -= costs[bestSkill][steps[bestSkill] + 1] - costs[bestSkill][steps[bestSkill]];
+            steps[bestSkill]++;
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,24 @@
+package com.bora.d100.controller;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class EncodedResponsesTest {
+
+	@Test
+	void gzipFollowsQValues() {
+		assertTrue(EncodedResponses.acceptsGzip("gzip, deflate, br"));
+		assertTrue(EncodedResponses.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+		assertTrue(EncodedResponses.acceptsGzip("x-gzip"));
+		assertTrue(EncodedResponses.acceptsGzip("*"));
+
+		assertFalse(EncodedResponses.acceptsGzip(null));
+		assertFalse(EncodedResponses.acceptsGzip("identity"));
+		assertFalse(EncodedResponses.acceptsGzip("gzip;q=0"));
+		assertFalse(EncodedResponses.acceptsGzip("gzip; q=0.000, *"));
+		assertFalse(EncodedResponses.acceptsGzip("*;q=0"));
+		assertFalse(EncodedResponses.acceptsGzip("gzip;q=abc"));
+	}
+}
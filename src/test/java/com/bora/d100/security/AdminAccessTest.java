@@ -0,0 +1,29 @@
+package com.bora.d100.security;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.bora.d100.exception.AdminAccessDeniedException;
+
+class AdminAccessTest {
+
+	@Test
+	void onlyTheConfiguredTokenIsAccepted() {
+		AdminAccess access = new AdminAccess("s3cret");
+
+		assertDoesNotThrow(() -> access.check("s3cret"));
+		assertThrows(AdminAccessDeniedException.class, () -> access.check("s3cre"));
+		assertThrows(AdminAccessDeniedException.class, () -> access.check(""));
+		assertThrows(AdminAccessDeniedException.class, () -> access.check(null));
+	}
+
+	@Test
+	void withoutATokenEverythingIsRefused() {
+		AdminAccess access = new AdminAccess("");
+
+		assertThrows(AdminAccessDeniedException.class, () -> access.check(""));
+		assertThrows(AdminAccessDeniedException.class, () -> access.check(null));
+	}
+}
@@ -0,0 +1,85 @@
+package com.bora.d100.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+class JwtUtilsTest {
+
+	private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes();
+	private static final String ENCODED_SECRET = Base64.getEncoder().encodeToString(SECRET);
+
+	@Test
+	void verifiedTokenIsServedFromTheCache() {
+		JwtUtils jwtUtils = new JwtUtils(ENCODED_SECRET, 60_000, 100);
+		String token = jwtUtils.generateToken("alice@example.com", Map.of("role", "USER"));
+
+		Claims first = jwtUtils.parseAndValidate(token);
+		assertNotNull(first);
+		assertEquals("alice@example.com", first.getSubject());
+		assertEquals(1, jwtUtils.cachedTokenCount());
+		// The second call does not parse again
+		assertSame(first, jwtUtils.parseAndValidate(token));
+		assertEquals("alice@example.com", jwtUtils.getSubject(token));
+	}
+
+	@Test
+	void cachedTokenExpires() throws InterruptedException {
+		JwtUtils jwtUtils = new JwtUtils(ENCODED_SECRET, 2_000, 100);
+		String token = jwtUtils.generateToken("alice@example.com", Map.of());
+
+		assertNotNull(jwtUtils.parseAndValidate(token));
+		assertEquals(1, jwtUtils.cachedTokenCount());
+
+		// exp has whole seconds, so it lies between 1 and 2 seconds from now
+		Thread.sleep(2_100);
+		assertNull(jwtUtils.parseAndValidate(token));
+		assertEquals(0, jwtUtils.cachedTokenCount());
+	}
+
+	@Test
+	void rejectsTokensWithoutExpiryAndForeignSignatures() {
+		JwtUtils jwtUtils = new JwtUtils(ENCODED_SECRET, 60_000, 100);
+		String withoutExp = Jwts.builder()
+				.setSubject("alice@example.com")
+				.setIssuedAt(new Date())
+				.signWith(Keys.hmacShaKeyFor(SECRET))
+				.compact();
+		String foreign = new JwtUtils(Base64.getEncoder().encodeToString("another secret of thirty-two b..".getBytes()), 60_000, 100)
+				.generateToken("alice@example.com", Map.of());
+
+		assertNull(jwtUtils.parseAndValidate(withoutExp));
+		assertNull(jwtUtils.parseAndValidate(foreign));
+		assertNull(jwtUtils.parseAndValidate("not.a.token"));
+		assertNull(jwtUtils.parseAndValidate(null));
+		assertEquals(0, jwtUtils.cachedTokenCount());
+	}
+
+	@Test
+	void fullCacheStillVerifiesWithoutCaching() {
+		JwtUtils jwtUtils = new JwtUtils(ENCODED_SECRET, 60_000, 1);
+		String cached = jwtUtils.generateToken("alice@example.com", Map.of());
+		String uncached = jwtUtils.generateToken("bob@example.com", Map.of());
+
+		assertNotNull(jwtUtils.parseAndValidate(cached));
+		Claims first = jwtUtils.parseAndValidate(uncached);
+		assertNotNull(first);
+		assertEquals("bob@example.com", first.getSubject());
+		assertEquals(1, jwtUtils.cachedTokenCount());
+		// Parsed again on every call
+		assertNotSame(first, jwtUtils.parseAndValidate(uncached));
+		assertSame(jwtUtils.parseAndValidate(cached), jwtUtils.parseAndValidate(cached));
+	}
+}
@@ -0,0 +1,35 @@
+package com.bora.d100.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+class AvatarServiceTest {
+
+	// Rejected before the store is touched
+	private final AvatarService avatarService = new AvatarService(null, null);
+
+	@Test
+	void sniffsRasterImages() {
+		assertEquals("image/png", AvatarService.sniffImageType(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0}));
+		assertEquals("image/jpeg", AvatarService.sniffImageType(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}));
+		assertEquals("image/gif", AvatarService.sniffImageType("GIF89a...".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals("image/webp", AvatarService.sniffImageType("RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.US_ASCII)));
+		assertNull(AvatarService.sniffImageType("<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes(StandardCharsets.US_ASCII)));
+		assertNull(AvatarService.sniffImageType(new byte[0]));
+	}
+
+	@Test
+	void rejectsScriptableAndMislabelledImages() {
+		String svg = Base64.getEncoder().encodeToString("<svg onload=\"alert(1)\"/>".getBytes(StandardCharsets.UTF_8));
+
+		assertThrows(IllegalArgumentException.class, () -> avatarService.store("data:image/svg+xml;base64," + svg));
+		assertThrows(IllegalArgumentException.class, () -> avatarService.store("data:image/;base64," + svg));
+		assertThrows(IllegalArgumentException.class, () -> avatarService.store("data:image/png;base64," + svg));
+	}
+}
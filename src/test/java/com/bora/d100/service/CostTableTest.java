@@ -0,0 +1,93 @@
+package com.bora.d100.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.bora.d100.dto.RulesSpec;
+import com.bora.d100.model.Player;
+import com.bora.d100.model.SkillId;
+
+class CostTableTest {
+
+	@Test
+	void compiledTableMatchesPenaltyLoop() {
+		RulesSpec spec = rulesService(120).getRulesSpec();
+		CostTable table = CostTable.compile(spec, 120);
+
+		for (Map.Entry<String, Integer> entry : spec.getCost().entrySet()) {
+			for (int from = -2; from <= 125; from++) {
+				for (int to = from - 1; to <= 130; to++) {
+					int expected = (int) Math.round(CostTable.loopCost(entry.getValue(), spec.getPenaltyRules(), from, to));
+					assertEquals(expected, table.costBetween(entry.getKey(), from, to),
+							entry.getKey() + " " + from + " -> " + to);
+				}
+			}
+		}
+	}
+
+	@Test
+	void fractionalStepCostsRoundOnlyOnce() {
+		Map<String, Integer> cost = new HashMap<>();
+		cost.put("ODD", 7);
+		cost.put("THIRD", 10);
+		RulesSpec spec = new RulesSpec(Map.of(), cost,
+				new RulesSpec.PenaltyRules(Arrays.asList(10, 20), Arrays.asList(1.5, 1.1)),
+				new RulesSpec.LevelRules(0, 1));
+		CostTable table = CostTable.compile(spec, 40);
+
+		for (String key : cost.keySet()) {
+			for (int from = 0; from <= 40; from++) {
+				for (int to = from; to <= 45; to++) {
+					int expected = (int) Math.round(CostTable.loopCost(cost.get(key), spec.getPenaltyRules(), from, to));
+					assertEquals(expected, table.costBetween(key, from, to), key + " " + from + " -> " + to);
+				}
+			}
+		}
+	}
+
+	@Test
+	void skillVectorTotalMatchesPerSkillLookups() {
+		RulesService rulesService = rulesService(120);
+		CostTable table = rulesService.getCostTable();
+		Random random = new Random(42);
+
+		for (int n = 0; n < 200; n++) {
+			Player player = new Player();
+			for (SkillId id : SkillId.values()) {
+				player.setSkill(id.getFieldName(), random.nextInt(140));
+			}
+
+			int expected = 0;
+			for (SkillId id : SkillId.values()) {
+				expected += table.costBetween(id.getSpecKey(), rulesService.getBaseValue(id.getSpecKey()), player.getSkill(id));
+			}
+			assertEquals(expected, table.totalCostFromBase(player.toSkillVector()));
+		}
+	}
+
+	@Test
+	void skillVectorFollowsSkillIdOrdinals() {
+		int[] v = new int[SkillId.COUNT];
+		for (int i = 0; i < v.length; i++) {
+			v[i] = i + 1;
+		}
+		Player player = new Player();
+		player.applySkillVector(v);
+
+		for (SkillId id : SkillId.values()) {
+			assertEquals(id.ordinal() + 1, player.getSkill(id), id.name());
+		}
+		assertEquals(Arrays.toString(v), Arrays.toString(player.toSkillVector()));
+	}
+
+	private static RulesService rulesService(int maxValue) {
+		return new RulesService(new ClassPathResource("rules/rules-spec.json"), "classpath*:rules/rulesets/*.json", maxValue, 4, false);
+	}
+}
@@ -0,0 +1,41 @@
+package com.bora.d100.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class EmailBloomFilterTest {
+
+	private static final int EXPECTED = 100_000;
+	private static final double RATE = 0.01;
+
+	@Test
+	void addedEmailsAreAlwaysFound() {
+		EmailBloomFilter filter = new EmailBloomFilter(EXPECTED, RATE);
+		for (int i = 0; i < EXPECTED; i++) {
+			filter.add("user" + i + "@example.com");
+		}
+
+		for (int i = 0; i < EXPECTED; i++) {
+			assertTrue(filter.mightContain("user" + i + "@example.com"), "user" + i);
+		}
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTheTarget() {
+		EmailBloomFilter filter = new EmailBloomFilter(EXPECTED, RATE);
+		for (int i = 0; i < EXPECTED; i++) {
+			filter.add("user" + i + "@example.com");
+		}
+
+		int probes = 200_000;
+		int falsePositives = 0;
+		for (int i = 0; i < probes; i++) {
+			if (filter.mightContain("other" + i + "@example.org")) {
+				falsePositives++;
+			}
+		}
+		double rate = (double) falsePositives / probes;
+		assertTrue(rate < RATE * 1.5, "false positive rate " + rate);
+	}
+}
@@ -0,0 +1,80 @@
+package com.bora.d100.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.bora.d100.exception.TooManyRequestsException;
+
+class LoginThrottleTest {
+
+	private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+	@Test
+	void allowsTheBurstThenOneAttemptPerInterval() {
+		LoginThrottle throttle = throttle(3, 100);
+
+		for (int i = 0; i < 3; i++) {
+			assertDoesNotThrow(() -> throttle.acquire("10.0.0.1", null));
+		}
+		assertThrows(TooManyRequestsException.class, () -> throttle.acquire("10.0.0.1", null));
+		// Other addresses have their own bucket
+		assertDoesNotThrow(() -> throttle.acquire("10.0.0.2", null));
+
+		advance(Duration.ofSeconds(1));
+		assertDoesNotThrow(() -> throttle.acquire("10.0.0.1", null));
+		assertThrows(TooManyRequestsException.class, () -> throttle.acquire("10.0.0.1", null));
+
+		// A long pause refills the whole burst, but not more
+		advance(Duration.ofHours(1));
+		for (int i = 0; i < 3; i++) {
+			assertDoesNotThrow(() -> throttle.acquire("10.0.0.1", null));
+		}
+		assertThrows(TooManyRequestsException.class, () -> throttle.acquire("10.0.0.1", null));
+	}
+
+	@Test
+	void successfulLoginResetsTheAccountBucket() {
+		LoginThrottle throttle = throttle(1000, 100);
+
+		for (int i = 0; i < 2; i++) {
+			assertDoesNotThrow(() -> throttle.acquire(null, "Alice@Example.com"));
+		}
+		// Same account whatever the case and padding
+		assertThrows(TooManyRequestsException.class, () -> throttle.acquire(null, " alice@example.com"));
+
+		throttle.reset("ALICE@example.com");
+		assertDoesNotThrow(() -> throttle.acquire(null, "alice@example.com"));
+	}
+
+	@Test
+	void rejectsNewKeysWhileTheMapIsFull() {
+		LoginThrottle throttle = new LoginThrottle(1000, Duration.ofSeconds(1), 1, Duration.ofMinutes(1), 2, clock::get);
+
+		assertDoesNotThrow(() -> throttle.acquire(null, "a@example.com"));
+		assertDoesNotThrow(() -> throttle.acquire(null, "b@example.com"));
+		// Both buckets are in use: a third account cannot get around the throttle
+		advance(Duration.ofMillis(59_500));
+		assertThrows(TooManyRequestsException.class, () -> throttle.acquire(null, "c@example.com"));
+		// a and b have refilled, but the map is only scanned again once the next sweep is due
+		advance(Duration.ofMillis(500));
+		assertThrows(TooManyRequestsException.class, () -> throttle.acquire(null, "c@example.com"));
+
+		// The sweep drops the refilled buckets and c gets one
+		advance(Duration.ofSeconds(1));
+		assertDoesNotThrow(() -> throttle.acquire(null, "c@example.com"));
+		assertThrows(TooManyRequestsException.class, () -> throttle.acquire(null, "c@example.com"));
+	}
+
+	private LoginThrottle throttle(int ipBurst, int keys) {
+		return new LoginThrottle(ipBurst, Duration.ofSeconds(1), 2, Duration.ofMinutes(1), keys, clock::get);
+	}
+
+	private void advance(Duration duration) {
+		clock.addAndGet(duration.toNanos());
+	}
+}
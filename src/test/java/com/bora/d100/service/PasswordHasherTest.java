@@ -0,0 +1,57 @@
+package com.bora.d100.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.bora.d100.exception.TooManyRequestsException;
+
+class PasswordHasherTest {
+
+	@Test
+	void hashesOnTheExecutor() {
+		ThreadPoolExecutor executor = executor();
+		try {
+			PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(4), executor);
+			String hash = hasher.encode("secret");
+
+			assertTrue(hasher.matches("secret", hash));
+			assertFalse(hasher.matches("wrong", hash));
+			assertFalse(hasher.needsRehash(hash));
+			assertTrue(new PasswordHasher(new BCryptPasswordEncoder(5), executor).needsRehash(hash));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void fullQueueIsRejectedWithTooManyRequests() throws InterruptedException {
+		ThreadPoolExecutor executor = executor();
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			// One task runs, one waits in the queue: the next submit is rejected
+			executor.submit(() -> { release.await(); return null; });
+			executor.submit(() -> { release.await(); return null; });
+			PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(4), executor);
+
+			assertThrows(TooManyRequestsException.class, () -> hasher.encode("secret"));
+		} finally {
+			release.countDown();
+			executor.shutdown();
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		}
+	}
+
+	// Same shape as the passwordHashExecutor bean, with one thread and a queue of one
+	private static ThreadPoolExecutor executor() {
+		return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+	}
+}
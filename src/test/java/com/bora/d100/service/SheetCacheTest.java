@@ -0,0 +1,84 @@
+package com.bora.d100.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class SheetCacheTest {
+
+	private static final String VERSION = "v1";
+
+	@Test
+	void putAfterInvalidateIsDropped() {
+		SheetCache cache = new SheetCache(1 << 20);
+		RenderedSheet sheet = sheet("sheet of 1");
+
+		// Render started, then the player was updated before the render finished
+		long generation = cache.generation();
+		cache.invalidate(1L);
+		cache.put(1L, sheet, generation);
+		assertNull(cache.get(1L, VERSION));
+		assertEquals(0, cache.getTotalBytes());
+
+		cache.put(1L, sheet, cache.generation());
+		assertSame(sheet, cache.get(1L, VERSION));
+		// Another template version is a miss
+		assertNull(cache.get(1L, "v2"));
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedFirst() {
+		RenderedSheet one = sheet("sheet 1");
+		long size = one.getSize();
+		SheetCache cache = new SheetCache(3 * size);
+
+		cache.put(1L, one, cache.generation());
+		cache.put(2L, sheet("sheet 2"), cache.generation());
+		cache.put(3L, sheet("sheet 3"), cache.generation());
+		assertEquals(3 * size, cache.getTotalBytes());
+
+		// 1 is used again, so 2 is the eldest when 4 arrives
+		assertNotNull(cache.get(1L, VERSION));
+		cache.put(4L, sheet("sheet 4"), cache.generation());
+
+		assertNotNull(cache.get(1L, VERSION));
+		assertNull(cache.get(2L, VERSION));
+		assertNotNull(cache.get(3L, VERSION));
+		assertNotNull(cache.get(4L, VERSION));
+		assertEquals(3 * size, cache.getTotalBytes());
+	}
+
+	@Test
+	void tracksBytesOnReplaceAndInvalidate() {
+		SheetCache cache = new SheetCache(1 << 20);
+		RenderedSheet small = sheet("small");
+		RenderedSheet large = sheet("a much larger sheet than the first one, ".repeat(20));
+
+		cache.put(1L, small, cache.generation());
+		cache.put(1L, large, cache.generation());
+		assertEquals(large.getSize(), cache.getTotalBytes());
+
+		cache.invalidate(1L);
+		assertEquals(0, cache.getTotalBytes());
+		assertNull(cache.get(1L, VERSION));
+	}
+
+	@Test
+	void sheetLargerThanTheCacheIsNotStored() {
+		RenderedSheet sheet = sheet("sheet");
+		SheetCache cache = new SheetCache(sheet.getSize() - 1);
+
+		cache.put(1L, sheet, cache.generation());
+		assertNull(cache.get(1L, VERSION));
+		assertEquals(0, cache.getTotalBytes());
+	}
+
+	private static RenderedSheet sheet(String html) {
+		return new RenderedSheet(EncodedPayload.of(html.getBytes(StandardCharsets.UTF_8)), "sheet.html", VERSION);
+	}
+}
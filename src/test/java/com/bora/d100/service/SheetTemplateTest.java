@@ -0,0 +1,71 @@
+package com.bora.d100.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.bora.d100.model.Player;
+
+class SheetTemplateTest {
+
+	private static final Map<String, Function<Player, String>> RESOLVERS = Map.of(
+			"NAME", Player::getName,
+			"AGE", p -> String.valueOf(p.getAge()),
+			"OCCUPATION", Player::getOccupation);
+
+	@Test
+	void replacesKnownPlaceholdersOnly() throws IOException {
+		Player player = player("Harvey", 42);
+
+		assertEquals("<p>Harvey (42) ${UNKNOWN} ${NAME</p>",
+				render("<p>${NAME} (${AGE}) ${UNKNOWN} ${NAME</p>", player));
+		assertEquals("${Harvey", render("${${NAME}", player));
+		assertEquals("no placeholders", render("no placeholders", player));
+		assertEquals("Harvey", render("${NAME}", player));
+	}
+
+	@Test
+	void unterminatedPlaceholderStaysLiteral() throws IOException {
+		Player player = player("Harvey", 42);
+
+		assertEquals("Harvey ${AGE", render("${NAME} ${AGE", player));
+		assertEquals("${", render("${", player));
+	}
+
+	@Test
+	void escapesValuesButNotTheTemplate() throws IOException {
+		Player player = player("<b>\"O'Brien\" & co</b>", 30);
+
+		assertEquals("<h1>&lt;b&gt;&quot;O&#39;Brien&quot; &amp; co&lt;/b&gt;</h1>", render("<h1>${NAME}</h1>", player));
+		// Null and empty values write nothing
+		assertEquals("[]", render("[${OCCUPATION}]", player));
+	}
+
+	@Test
+	void lengthCountsLiteralsOnly() {
+		SheetTemplate template = SheetTemplate.compile("ab${NAME}cd${UNKNOWN}", RESOLVERS, "v1");
+
+		assertEquals("ab".length() + "cd${UNKNOWN}".length(), template.getLength());
+		assertEquals(1, template.getSlotCount());
+		assertEquals("v1", template.getVersion());
+	}
+
+	private static String render(String template, Player player) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		SheetTemplate.compile(template, RESOLVERS, "test").render(player, out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static Player player(String name, int age) {
+		Player player = new Player();
+		player.setName(name);
+		player.setAge(age);
+		return player;
+	}
+}
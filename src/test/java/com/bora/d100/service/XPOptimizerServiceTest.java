@@ -0,0 +1,84 @@
+package com.bora.d100.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.bora.d100.dto.XPOptimizeRequestDTO;
+import com.bora.d100.dto.XPOptimizeResponseDTO;
+import com.bora.d100.model.Player;
+import com.bora.d100.model.SkillId;
+
+class XPOptimizerServiceTest {
+
+	private final RulesService rulesService = new RulesService(new ClassPathResource("rules/rules-spec.json"),
+			"classpath*:rules/rulesets/*.json", 300, 4, false);
+	private final XPOptimizerService optimizer = new XPOptimizerService(rulesService);
+
+	@Test
+	void costsAboveTheTableDoNotOverflow() {
+		CostTable table = rulesService.getCostTable();
+
+		int far = table.costBetween(SkillId.LISTEN, 50, 1_000_000_000);
+		int farther = table.costBetween(SkillId.LISTEN, 50, 2_000_000_000);
+		assertTrue(far > 0, "cost " + far);
+		assertTrue(farther >= far, far + " > " + farther);
+		assertTrue(table.costBetween(SkillId.LISTEN, -2_000_000_000, 50) > 0);
+		assertTrue(table.totalCostFromBase(vectorOf(2_000_000_000)) > 0);
+	}
+
+	@Test
+	void maxValueIsCappedByTheRules() {
+		XPOptimizeResponseDTO response = assertTimeoutPreemptively(Duration.ofSeconds(10),
+				() -> optimizer.optimize(request(50, 12000, 2_000_000_000)));
+
+		int target = response.getTargets().get("Listen");
+		assertTrue(target > 50 && target <= rulesService.getCostTable().getMaxValue(), "target " + target);
+		assertTrue(response.getSpentXP() <= 12000);
+	}
+
+	@Test
+	void optionsPerSkillAreBounded() {
+		XPOptimizeResponseDTO response = assertTimeoutPreemptively(Duration.ofSeconds(10),
+				() -> optimizer.optimize(request(-2_000_000_000, Integer.MAX_VALUE, null)));
+
+		long steps = (long) response.getTargets().get("Listen") + 2_000_000_000L;
+		assertEquals(XPOptimizerService.MAX_STEPS, steps);
+		assertTrue(response.getSpentXP() > 0);
+	}
+
+	@Test
+	void choiceMatrixIsBoundedInMemory() {
+		assertTrue(XPOptimizerService.fitsExact(10, 100_000, 10));
+		// Cheap in work, but ten skills over 250000 units would need a 5 MB choice matrix
+		assertFalse(XPOptimizerService.fitsExact(10, 249_999, 10));
+		assertTrue(XPOptimizerService.fitsExact(1, 250_000, 1));
+		assertFalse(XPOptimizerService.fitsExact(1, 250_001, 1));
+		assertFalse(XPOptimizerService.fitsExact(1, 100_000, 1_000));
+	}
+
+	private static XPOptimizeRequestDTO request(int listen, int budget, Integer maxValue) {
+		Player player = new Player();
+		player.setSkill(SkillId.LISTEN, listen);
+		XPOptimizeRequestDTO request = new XPOptimizeRequestDTO();
+		request.setPlayer(player);
+		request.setBudget(budget);
+		request.setMaxValue(maxValue);
+		request.setWeights(Map.of("Listen", 1.0));
+		return request;
+	}
+
+	private static int[] vectorOf(int value) {
+		int[] v = new int[SkillId.COUNT];
+		Arrays.fill(v, value);
+		return v;
+	}
+}